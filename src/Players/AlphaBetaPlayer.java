@@ -1,47 +1,148 @@
 package Players;
 
 import Engine.Engine;
+import moveGenerator.LegalGenerator;
+import moveGenerator.MoveList;
+import state.Bitboard;
+import state.Board;
 import state.Constants;
 import state.Move;
 
+import java.util.Arrays;
+
+/**
+ * Searches the best move with alpha beta pruning and iterative deepening, until the time is up.
+ *
+ * The search works in place on one copy of the board: a move is made, searched and unmade, so a node costs no
+ * allocation. The board keeps a move list per ply, which is the search stack: the moves of a node stay valid while
+ * the nodes below it are searched. The scores are negamax scores, for the color to move, in centipawns.
+ *
+ * What is found about a position is kept in a transposition table that lives as long as the player, so the next
+ * iteration and the next move start with the best moves and bounds of the last ones. The moves of a node are
+ * searched in the order of the MovePicker.
+ *
+ * At the horizon a quiescence search goes on with only the captures and promotions, until the position is quiet, so
+ * the evaluation does not stop in the middle of an exchange.
+ *
+ * The search is a principal variation search: the first move of a node is searched with the full window, the others
+ * with a null window around alpha, which only proves that they are not better. Only a move that turns out better is
+ * searched again with the full window. Every iteration starts with an aspiration window around the score of the last
+ * one, which is widened exponentially when the score falls outside, and searches the principal variation of the last
+ * iteration first.
+ *
+ * Two things make the search selective. Null move pruning lets the opponent move twice: when the position is still
+ * at least beta after a shallower search, the node is cut off without searching any move. It is not tried in check,
+ * where passing is illegal, nor when the color to move has only pawns, where passing can be the only good move
+ * (zugzwang). Late move reductions search the quiet moves late in the ordered list one ply shallower, and only search
+ * them again at full depth when they turn out better than alpha. Both can be tuned with system properties, for
+ * example -DnullMoveReduction=3 or -DlateMoveReductions=false.
+ */
 public class AlphaBetaPlayer extends Player {
+    public static final int INFINITY = 1_000_000;
+    public static final int MATE = 100_000; // the score of being mated at the root, a mate at ply p scores -(MATE - p)
+    public static final int MAX_PLY = 128;
+    // a stalemate, a repetition or the fifty move rule is as good for both colors as an equal position
+    static final int DRAW = 0;
+    private static final int[] PIECE_VALUES = new int[Constants.PAWN + 1]; // indexed by piece type without color
+    private static final int TIME_CHECK_INTERVAL = 1023; // check the clock once every 1024 nodes
+    static final int DEFAULT_TABLE_MEGABYTES = 64;
+    private static final int ASPIRATION_WINDOW = 25; // half the first window around the last score
+    private static final int ASPIRATION_DEPTH = 5; // the first depth with an aspiration window, the ones before are fast
+    // the tuning of null move pruning and late move reductions, see the class comment
+    private static final boolean NULL_MOVE = Boolean.parseBoolean(System.getProperty("nullMove", "true"));
+    private static final int NULL_MOVE_REDUCTION = Integer.getInteger("nullMoveReduction", 2); // on top of the ply
+    private static final int NULL_MOVE_MIN_DEPTH = Integer.getInteger("nullMoveMinDepth", 3);
+    private static final boolean LATE_MOVE_REDUCTIONS =
+            Boolean.parseBoolean(System.getProperty("lateMoveReductions", "true"));
+    private static final int LATE_MOVE_MIN_DEPTH = Integer.getInteger("lateMoveMinDepth", 3);
+    private static final int LATE_MOVE_INDEX = Integer.getInteger("lateMoveIndex", 3); // the moves before are not reduced
+    private static final int LATE_MOVE_REDUCTION = Integer.getInteger("lateMoveReduction", 1);
+    // a capture is skipped in the quiescence search if even this much more than the captured piece does not reach alpha
+    private static final int DELTA_MARGIN = 200;
+
+    static {
+        PIECE_VALUES[Constants.ROOK] = 500;
+        PIECE_VALUES[Constants.KNIGHT] = 300;
+        PIECE_VALUES[Constants.BISHOP] = 300;
+        PIECE_VALUES[Constants.QUEEN] = 900;
+        PIECE_VALUES[Constants.PAWN] = 100;
+    }
 
     private long maxTimeToRun = 5000L;
     private long startTime;
     private long endTime;
 
-    private int startDepth = 2;
+    private int startDepth = 3;
     int currentDepth;
-    boolean inevetableMate = false;
+    private int rootBestMove; // the best move of the root in the iteration that is searched
+    private int bestMove; // the best move of the last iteration that finished, 0 if there is none
+    private long nodes;
+    private long quiescenceNodes;
+    private long tableHits; // the nodes that were cut off by the transposition table
+    private long cutoffs; // the nodes where a move reached beta
+    private long firstMoveCutoffs; // the nodes where the first move reached beta, a measure of the move ordering
+    private final long[] bitboards = new long[14];
+    private final TranspositionTable table;
+    private final MovePicker picker = new MovePicker(MAX_PLY);
+    private final LegalGenerator generator = new LegalGenerator();
+    private final int[][] pv = new int[MAX_PLY + 1][MAX_PLY + 1]; // [ply][ply..], the best line from every ply
+    private final int[] pvLength = new int[MAX_PLY + 1]; // the ply after the end of the line of every ply
+    private final int[] previousPv = new int[MAX_PLY + 1]; // the principal variation of the last iteration
+    private int previousPvLength;
+    private boolean followingPv; // whether the current node is on the principal variation of the last iteration
+    private long researches; // the null window searches that failed high and were searched again
+    private long nullMoves; // the null moves that were tried
+    private long nullMoveCutoffs; // the null moves that reached beta
+    private long reductions; // the moves that were searched with a late move reduction
+    private long reductionResearches; // the reduced moves that beat alpha and were searched again at full depth
+    private long pathDraws; // the repetitions and fifty move draws that were scored, they depend on the path to them
+    private final MoveList[] captureLists = new MoveList[MAX_PLY + 1]; // the captures of the quiescence search per ply
 
     public AlphaBetaPlayer(int color, Engine e, long maxTimeToRun) {
+        this(color, e, maxTimeToRun, DEFAULT_TABLE_MEGABYTES);
+    }
+
+    /**
+     * @param color          the color of the player
+     * @param e              the engine
+     * @param maxTimeToRun   the time to search a move, in milliseconds
+     * @param tableMegabytes the size of the transposition table
+     */
+    public AlphaBetaPlayer(int color, Engine e, long maxTimeToRun, int tableMegabytes) {
         super(color, e);
         this.maxTimeToRun = maxTimeToRun;
+        this.table = new TranspositionTable(tableMegabytes);
+        for (int ply = 0; ply <= MAX_PLY; ply++) {
+            captureLists[ply] = new MoveList();
+        }
+    }
+
+    /**
+     * A player without an engine, to search positions with search
+     * @param b              the board
+     * @param tableMegabytes the size of the transposition table
+     */
+    public AlphaBetaPlayer(Board b, int tableMegabytes) {
+        super(b.colorToMove(), b);
+        this.table = new TranspositionTable(tableMegabytes);
+        for (int ply = 0; ply <= MAX_PLY; ply++) {
+            captureLists[ply] = new MoveList();
+        }
     }
 
 
     @Override
     public void run() {
-        inevetableMate = false;
-        currentDepth = startDepth;
-        startTime = System.currentTimeMillis();
-        endTime = startTime + maxTimeToRun;
-        Node startNode = new Node(board);
-        Move bestMove = null;
+        Board b = board.copy(); // the engine keeps using its own board while this one is searched
         try {
-            while(true) {
-                int value = alphaBeta(startNode, currentDepth);
-                bestMove = startNode.getBestMove();
-                System.out.println("Depth: " + currentDepth + " bestMove: " + bestMove + " with value: " + value + " runningtime: " + (System.currentTimeMillis() - startTime));
-                currentDepth++;
-                if (inevetableMate) break; // already a mate found, so no use in going on
-            }
+            iterate(b, startDepth, MAX_PLY - 1, System.currentTimeMillis() + maxTimeToRun);
         } catch (TimeOutException e) {
             // out of time
-            if (bestMove == null) { // no move found yet
-                System.err.println("Random move");
-                bestMove = getRandomValidMove(board);
-            }
+        }
+        Move bestMove = getBestMove();
+        if (bestMove == null) { // no move found yet
+            System.err.println("Random move");
+            bestMove = getRandomValidMove(board);
         }
         this.move = bestMove;
         synchronized (Constants.lock) {
@@ -51,79 +152,353 @@ public class AlphaBetaPlayer extends Player {
     }
 
     /**
-     * The initial call for the alphabeta algorithm
-     * @param n the initial node
+     * Searches a position to a fixed depth without a time limit, for analysis and tests. The best move and the
+     * principal variation can be read afterwards.
+     * @param b the position, it is changed during the search but restored at the end
+     * @param depth the depth of the last iteration
+     * @return the value of the position for the color to move
+     */
+    public int search(Board b, int depth) {
+        try {
+            return iterate(b, 1, depth, Long.MAX_VALUE);
+        } catch (TimeOutException e) {
+            throw new IllegalStateException(e); // there is no time limit
+        }
+    }
+
+    /**
+     * Iterative deepening: searches the position one ply deeper every iteration, until the last depth, a mate or the
+     * end time. The best move and the principal variation of every iteration that finishes are kept.
+     * @param b the position, it is changed during the search but restored at the end
+     * @param firstDepth the depth of the first iteration
+     * @param lastDepth the depth of the last iteration
+     * @param endTime the time in milliseconds at which the search stops
+     * @return the value of the last iteration that finished, for the color to move
+     * @throws TimeOutException whenever it searches for too long
+     */
+    private int iterate(Board b, int firstDepth, int lastDepth, long endTime) throws TimeOutException {
+        startTime = System.currentTimeMillis();
+        this.endTime = endTime;
+        nodes = 0;
+        quiescenceNodes = 0;
+        tableHits = 0;
+        cutoffs = 0;
+        firstMoveCutoffs = 0;
+        researches = 0;
+        nullMoves = 0;
+        nullMoveCutoffs = 0;
+        reductions = 0;
+        reductionResearches = 0;
+        previousPvLength = 0;
+        bestMove = 0;
+        table.newSearch();
+        picker.newSearch();
+        int value = 0;
+        for (currentDepth = firstDepth; currentDepth <= lastDepth; currentDepth++) {
+            value = aspirationSearch(b, currentDepth, value);
+            bestMove = rootBestMove;
+            long runningTime = System.currentTimeMillis() - startTime;
+            System.out.println("Depth: " + currentDepth + " bestMove: " + new Move(bestMove) + " with value: " +
+                    (b.isWhiteToMove() ? value : -value) + " nodes: " + nodes + " (quiescence: " +
+                    quiescenceNodes + ") nps: " + nodes * 1000 / Math.max(runningTime, 1) + " tt cutoffs: " +
+                    tableHits + " first move cutoffs: " + firstMoveCutoffs * 100 / Math.max(cutoffs, 1) +
+                    "% researches: " + researches + " null move cutoffs: " + nullMoveCutoffs + "/" + nullMoves +
+                    " reductions: " + reductions + " (researched: " + reductionResearches + ") runningtime: " +
+                    runningTime + " pv:" + pvString());
+            previousPvLength = pvLength[0];
+            System.arraycopy(pv[0], 0, previousPv, 0, previousPvLength);
+            if (Math.abs(value) >= MATE - MAX_PLY) break; // already a mate found, so no use in going on
+        }
+        return value;
+    }
+
+    /**
+     * @return the best move of the last iteration that finished, null if there is none
+     */
+    public Move getBestMove() {
+        return bestMove == 0 ? null : new Move(bestMove);
+    }
+
+    /**
+     * @return the encoded moves of the principal variation of the last iteration that finished
+     */
+    public int[] getPrincipalVariation() {
+        return Arrays.copyOf(previousPv, previousPvLength);
+    }
+
+    /**
+     * @return the amount of null moves that were tried in the last search
+     */
+    public long getNullMoves() {
+        return nullMoves;
+    }
+
+    /**
+     * Searches the root with an aspiration window around the score of the last iteration. When the score falls outside
+     * the window, that side of the window is widened twice as much as the time before and the root is searched again.
+     * @param b the position, it is changed during the search but restored at the end
      * @param depth the search depth
-     * @return the value of the best move
+     * @param lastValue the score of the last iteration
+     * @return the value of the best move for the color to move, the best move of the root is set
      * @throws TimeOutException whenever it searches for too long
      */
-    private int alphaBeta(Node n, int depth) throws TimeOutException {
-        boolean isMaximizing = (color == Constants.WHITE);
-        return alphaBeta(n, depth, Integer.MIN_VALUE, Integer.MAX_VALUE, isMaximizing);
+    private int aspirationSearch(Board b, int depth, int lastValue) throws TimeOutException {
+        if (depth < ASPIRATION_DEPTH || Math.abs(lastValue) >= MATE - MAX_PLY) {
+            return alphaBeta(b, depth, -INFINITY, INFINITY);
+        }
+        int delta = ASPIRATION_WINDOW;
+        int alpha = Math.max(lastValue - delta, -INFINITY);
+        int beta = Math.min(lastValue + delta, INFINITY);
+        while (true) {
+            int value = alphaBeta(b, depth, alpha, beta);
+            if (value <= alpha && alpha > -INFINITY) {
+                delta *= 2;
+                alpha = Math.max(lastValue - delta, -INFINITY);
+            } else if (value >= beta && beta < INFINITY) {
+                delta *= 2;
+                beta = Math.min(lastValue + delta, INFINITY);
+            } else {
+                return value;
+            }
+            researches++;
+        }
     }
 
     /**
-     * An implementation of the alpha beta pruning algorithm.
-     * @param n the node that is currently evaluated
+     * The initial call for the alphabeta algorithm, it sets the best move of the root
+     * @param b the position, it is changed during the search but restored at the end
+     * @param depth the search depth
+     * @param alpha the lower end of the window
+     * @param beta the upper end of the window
+     * @return the value of the best move for the color to move
+     * @throws TimeOutException whenever it searches for too long
+     */
+    private int alphaBeta(Board b, int depth, int alpha, int beta) throws TimeOutException {
+        rootBestMove = 0;
+        followingPv = true;
+        return alphaBeta(b, depth, 0, alpha, beta, false);
+    }
+
+    /**
+     * @return the principal variation of the last search, starting with a space
+     */
+    private String pvString() {
+        StringBuilder s = new StringBuilder();
+        for (int i = 0; i < pvLength[0]; i++) {
+            s.append(' ').append(new Move(pv[0][i]));
+        }
+        return s.toString();
+    }
+
+    /**
+     * An implementation of the alpha beta pruning algorithm in negamax form: the value of a node is the negated value
+     * of its best child.
+     * @param b the position, the moves are made and unmade on it
      * @param depth the search depth that it is currently at (counting down the deeper it goes)
+     * @param ply the distance to the root
      * @param alpha the current alpha
      * @param beta the current beta
-     * @param maximizingPlayer whether or not this is the maximizing player that is being examined
-     * @return the value of the best move that can be reached
+     * @param allowNullMove false right after a null move, so the color to move does not pass twice in a row
+     * @return the value of the best move that can be reached, for the color to move
      * @throws TimeOutException whenever it is searching for too long
      */
-    private int alphaBeta(Node n, int depth, int alpha, int beta, boolean maximizingPlayer) throws TimeOutException {
-        if (System.currentTimeMillis() > endTime) {
+    private int alphaBeta(Board b, int depth, int ply, int alpha, int beta, boolean allowNullMove)
+            throws TimeOutException {
+        if ((++nodes & TIME_CHECK_INTERVAL) == 0 && System.currentTimeMillis() > endTime) {
             throw new TimeOutException();
         }
-        if (depth < 0 || n.isLeave()) {
-            return evaluate(n);
-        }
-        if (maximizingPlayer) {
-            int value = Integer.MIN_VALUE;
-            for (Node child : n) {
-                value = Math.max(value, alphaBeta(child, depth - 1, alpha, beta, false));
-                if (value > alpha) {
-                    alpha = value;
-                    if (depth == currentDepth)
-                        n.setBestMove(child.getLastMove());
+        pvLength[ply] = ply;
+        if (ply > 0 && b.isPotentialDraw()) {
+            pathDraws++;
+            return DRAW;
+        }
+        if (depth <= 0 || ply == MAX_PLY) {
+            return quiescence(b, ply, alpha, beta);
+        }
+        MoveList moves = b.getMoveList();
+        boolean inCheck = b.colorToMoveInCheck();
+        if (moves.isEmpty()) {
+            return inCheck ? -(MATE - ply) : DRAW;
+        }
+
+        long key = b.getHashKey();
+        long entry = table.probe(key);
+        int tableMove = TranspositionTable.getMove(entry);
+        if (entry != TranspositionTable.NONE && ply > 0 && TranspositionTable.getDepth(entry) >= depth) {
+            int score = TranspositionTable.getScore(entry, ply);
+            int bound = TranspositionTable.getBound(entry);
+            if (bound == TranspositionTable.EXACT ||
+                    bound == TranspositionTable.LOWER_BOUND && score >= beta ||
+                    bound == TranspositionTable.UPPER_BOUND && score <= alpha) {
+                tableHits++;
+                return score;
+            }
+        }
+        boolean pvNode = beta - alpha > 1;
+        if (NULL_MOVE && allowNullMove && !pvNode && !inCheck && depth >= NULL_MOVE_MIN_DEPTH &&
+                beta < MATE - MAX_PLY && hasPieces(b) && evaluate(b) >= beta) {
+            nullMoves++;
+            followingPv = false;
+            b.makeNullMove();
+            int value = -alphaBeta(b, depth - 1 - NULL_MOVE_REDUCTION, ply + 1, -beta, -beta + 1, false);
+            b.unmakeNullMove();
+            if (value >= beta) {
+                nullMoveCutoffs++;
+                return beta;
+            }
+        }
+        int pvMove = followingPv && ply < previousPvLength ? previousPv[ply] : 0;
+        picker.score(moves, ply, tableMove, pvMove);
+
+        int originalAlpha = alpha;
+        int bestMove = 0;
+        // A repetition or fifty move draw below this node is not one when the position is reached by another path.
+        // A score such a draw can have given is stored with depth 0: the move is used again, the score never is
+        long pathDrawsBefore = pathDraws;
+        for (int i = 0; i < moves.size(); i++) {
+            int m = picker.next(moves, ply, i);
+            followingPv = pvMove != 0 && m == pvMove; // the principal variation is always the first move
+            b.makeMove(m);
+            int value;
+            if (i == 0) {
+                value = -alphaBeta(b, depth - 1, ply + 1, -beta, -alpha, true);
+            } else {
+                if (LATE_MOVE_REDUCTIONS && i >= LATE_MOVE_INDEX && depth >= LATE_MOVE_MIN_DEPTH && !inCheck &&
+                        !Move.isCapture(m) && !Move.isPromotion(m) && !picker.isKiller(m, ply) &&
+                        !b.colorToMoveInCheck()) {
+                    reductions++;
+                    value = -alphaBeta(b, depth - 1 - LATE_MOVE_REDUCTION, ply + 1, -alpha - 1, -alpha, true);
+                    if (value > alpha) { // not as bad as its place in the list said
+                        reductionResearches++;
+                        value = -alphaBeta(b, depth - 1, ply + 1, -alpha - 1, -alpha, true);
+                    }
+                } else {
+                    value = -alphaBeta(b, depth - 1, ply + 1, -alpha - 1, -alpha, true);
+                }
+                if (value > alpha && value < beta) { // better than the first move, find out how much better
+                    researches++;
+                    value = -alphaBeta(b, depth - 1, ply + 1, -beta, -alpha, true);
                 }
+            }
+            b.unMakeMove(m);
+            if (value > alpha) {
+                alpha = value;
+                bestMove = m;
+                if (ply == 0) rootBestMove = m;
+                pv[ply][ply] = m;
+                System.arraycopy(pv[ply + 1], ply + 1, pv[ply], ply + 1, pvLength[ply + 1] - ply - 1);
+                pvLength[ply] = pvLength[ply + 1];
                 if (alpha >= beta) {
-                    if (beta == Integer.MAX_VALUE) inevetableMate = true;
+                    cutoffs++;
+                    if (i == 0) firstMoveCutoffs++;
+                    picker.cutoff(m, ply, depth);
+                    boolean pathDraw = pathDraws != pathDrawsBefore && beta <= DRAW;
+                    table.store(key, TranspositionTable.compress(m), beta, pathDraw ? 0 : depth,
+                            TranspositionTable.LOWER_BOUND, ply);
                     return beta;
                 }
             }
-            return alpha;
+        }
+        boolean pathDraw = pathDraws != pathDrawsBefore;
+        if (alpha > originalAlpha) {
+            table.store(key, TranspositionTable.compress(bestMove), alpha, pathDraw && alpha == DRAW ? 0 : depth,
+                    TranspositionTable.EXACT, ply);
+        } else { // keep the move of the table, there is no better one
+            table.store(key, tableMove, alpha, pathDraw && alpha >= DRAW ? 0 : depth, TranspositionTable.UPPER_BOUND,
+                    ply);
+        }
+        return alpha;
+    }
+
+    /**
+     * Searches only the captures and promotions until the position is quiet. The color to move does not have to
+     * capture, so the static evaluation is a lower bound (stand pat). When in check every move is searched, as
+     * standing pat is not possible. The captures go in a move list per ply, so a node allocates nothing.
+     * @param b the position, the moves are made and unmade on it
+     * @param ply the distance to the root
+     * @param alpha the current alpha
+     * @param beta the current beta
+     * @return the value of the position for the color to move
+     * @throws TimeOutException whenever it is searching for too long
+     */
+    private int quiescence(Board b, int ply, int alpha, int beta) throws TimeOutException {
+        if ((++nodes & TIME_CHECK_INTERVAL) == 0 && System.currentTimeMillis() > endTime) {
+            throw new TimeOutException();
+        }
+        quiescenceNodes++;
+        pvLength[ply] = ply;
+        boolean inCheck = b.colorToMoveInCheck();
+        int standPat = evaluate(b);
+        if (ply == MAX_PLY) {
+            return standPat;
+        }
+        MoveList moves;
+        if (inCheck) {
+            moves = b.getMoveList();
+            if (moves.isEmpty()) {
+                return -(MATE - ply);
+            }
         } else {
-            int value = Integer.MAX_VALUE;
-            for (Node child : n) {
-                value = Math.min(value, alphaBeta(child, depth - 1, alpha, beta, true));
-                if (value < beta) {
-                    beta = value;
-                    if (depth == currentDepth)
-                        n.setBestMove(child.getLastMove());
-                }
+            if (standPat >= beta) {
+                return beta;
+            }
+            if (standPat > alpha) {
+                alpha = standPat;
+            }
+            moves = captureLists[ply];
+            generator.generateCaptures(b, b.colorToMove(), moves);
+        }
+        picker.score(moves, ply, 0, 0);
+        for (int i = 0; i < moves.size(); i++) {
+            int m = picker.next(moves, ply, i);
+            // delta pruning: even winning the captured piece with some margin does not reach alpha
+            if (!inCheck && !Move.isPromotion(m) && standPat + capturedValue(m) + DELTA_MARGIN <= alpha) {
+                continue;
+            }
+            b.makeMove(m);
+            int value = -quiescence(b, ply + 1, -beta, -alpha);
+            b.unMakeMove(m);
+            if (value > alpha) {
+                alpha = value;
                 if (alpha >= beta) {
-                    if (alpha == Integer.MIN_VALUE) inevetableMate = true;
-                    return alpha;
+                    return beta;
                 }
             }
-            return beta;
         }
+        return alpha;
     }
 
-    private int evaluate(Node n) {
-        if (n.whiteMated()) {
-            return Integer.MIN_VALUE;
-        } else if (n.blackMated()) {
-            return Integer.MAX_VALUE;
-        } else if (n.staleMate() || n.isPotentialDraw()) {
-            if (n.isWhiteToMove()) {
-                return Integer.MIN_VALUE + 1; // draw only slightly better than losing.
-            } else {
-                return Integer.MAX_VALUE - 1;
-            }
+    /**
+     * @param m an encoded capture
+     * @return the value of the captured piece
+     */
+    private static int capturedValue(int m) {
+        return Move.isEnPassent(m) ? PIECE_VALUES[Constants.PAWN] : PIECE_VALUES[Move.getCapturedPiece(m) & ~1];
+    }
+
+    /**
+     * @param b the position
+     * @return true if the color to move has a piece besides its king and pawns, so passing is rarely the best move
+     */
+    private boolean hasPieces(Board b) {
+        b.copyBitboards(bitboards);
+        int color = b.colorToMove();
+        return (bitboards[Constants.ROOK | color] | bitboards[Constants.KNIGHT | color] |
+                bitboards[Constants.BISHOP | color] | bitboards[Constants.QUEEN | color]) != 0;
+    }
+
+    /**
+     * The material balance for the color to move
+     * @param b the position
+     * @return the value of the own pieces minus the value of the opponent pieces, in centipawns
+     */
+    private int evaluate(Board b) {
+        b.copyBitboards(bitboards);
+        int value = 0;
+        for (int piece = Constants.ROOK; piece <= Constants.PAWN; piece += 2) {
+            value += PIECE_VALUES[piece] * (Bitboard.getPopCount(bitboards[piece | Constants.WHITE]) -
+                    Bitboard.getPopCount(bitboards[piece | Constants.BLACK]));
         }
-        return n.getPiecesValue();
+        return b.isWhiteToMove() ? value : -value;
     }
 }
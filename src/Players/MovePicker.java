@@ -0,0 +1,161 @@
+package Players;
+
+import moveGenerator.MoveList;
+import state.Constants;
+import state.Move;
+
+/**
+ * Orders the moves of a node so alpha beta finds the cutoffs early. The moves are given a score first: the move of
+ * the principal variation of the last iteration, the move of the transposition table, then the captures and
+ * promotions by most valuable victim and least valuable attacker, then the two killer moves of the ply, and then the
+ * other quiet moves by their history. The moves are not sorted, every call to next selects the best one of the moves
+ * that are left, because a cutoff often comes after a few moves and then the rest never has to be ordered.
+ *
+ * The killers are quiet moves that caused a cutoff at the same ply in another part of the tree. The history is a
+ * butterfly table, indexed by the moving piece and the to square, that grows with the depth squared of every
+ * cutoff of a quiet move.
+ */
+public class MovePicker {
+    private static final int PV_MOVE = (1 << 30) + 1;
+    private static final int TABLE_MOVE = 1 << 30;
+    private static final int CAPTURE = 1 << 29; // and promotions, plus the mvv-lva score
+    private static final int FIRST_KILLER = (1 << 28) + 1;
+    private static final int SECOND_KILLER = 1 << 28;
+    private static final int MAX_HISTORY = 1 << 27; // the history is halved when it gets here, below the killers
+    // the order of the pieces for mvv-lva, indexed by piece type without color
+    private static final int[] ORDER_VALUES = new int[Constants.PAWN + 1];
+
+    static {
+        ORDER_VALUES[Constants.PAWN] = 1;
+        ORDER_VALUES[Constants.KNIGHT] = 2;
+        ORDER_VALUES[Constants.BISHOP] = 3;
+        ORDER_VALUES[Constants.ROOK] = 4;
+        ORDER_VALUES[Constants.QUEEN] = 5;
+        ORDER_VALUES[Constants.KING] = 6;
+    }
+
+    private final int[][] scores; // [ply][index], parallel to the move list of the ply
+    private final int[][] killers; // [ply][slot], the first slot is the newest
+    private final int[][] history = new int[14][65]; // [moving piece][to square]
+
+    /**
+     * @param maxPly the largest ply that moves are ordered at
+     */
+    public MovePicker(int maxPly) {
+        this.scores = new int[maxPly + 1][MoveList.MAX_MOVES];
+        this.killers = new int[maxPly + 1][2];
+    }
+
+    /**
+     * Forgets the killers and halves the history, for the search of a new move
+     */
+    public void newSearch() {
+        for (int[] plyKillers : killers) {
+            plyKillers[0] = 0;
+            plyKillers[1] = 0;
+        }
+        ageHistory();
+    }
+
+    /**
+     * Gives every move of a node a score, before the first call to next
+     * @param moves     the moves of the node
+     * @param ply       the ply of the node
+     * @param tableMove the 16 bit move of the transposition table, 0 if there is none
+     * @param pvMove    the move of the principal variation of the last iteration, 0 if the node is not on it
+     */
+    public void score(MoveList moves, int ply, int tableMove, int pvMove) {
+        int[] plyScores = scores[ply];
+        int[] plyKillers = killers[ply];
+        for (int i = 0; i < moves.size(); i++) {
+            int m = moves.get(i);
+            if (m == pvMove) {
+                plyScores[i] = PV_MOVE;
+            } else if (TranspositionTable.matches(m, tableMove)) {
+                plyScores[i] = TABLE_MOVE;
+            } else if (Move.isCapture(m) || Move.isPromotion(m)) {
+                plyScores[i] = CAPTURE + captureScore(m);
+            } else if (m == plyKillers[0]) {
+                plyScores[i] = FIRST_KILLER;
+            } else if (m == plyKillers[1]) {
+                plyScores[i] = SECOND_KILLER;
+            } else {
+                plyScores[i] = history[Move.getMovingPiece(m)][Move.getTo(m)];
+            }
+        }
+    }
+
+    /**
+     * The most valuable victim first, and of the captures of one victim the least valuable attacker first. A
+     * promotion counts as capturing the piece it promotes to.
+     */
+    private static int captureScore(int m) {
+        int victim = Move.isEnPassent(m) ? Constants.PAWN : Move.getCapturedPiece(m) & ~1;
+        int victimValue = Move.isCapture(m) ? ORDER_VALUES[victim] : 0;
+        victimValue += ORDER_VALUES[Move.getPromotionPiece(m)];
+        return victimValue * 8 - ORDER_VALUES[Move.getMovingPiece(m) & ~1];
+    }
+
+    /**
+     * Selects the best move of the ones that are left and moves it to an index
+     * @param moves the moves of the node, scored with score
+     * @param ply   the ply of the node
+     * @param index the index of the move that is searched next, the moves before it are searched already
+     * @return the move that is now at the index
+     */
+    public int next(MoveList moves, int ply, int index) {
+        int[] plyScores = scores[ply];
+        int best = index;
+        for (int i = index + 1; i < moves.size(); i++) {
+            if (plyScores[i] > plyScores[best]) {
+                best = i;
+            }
+        }
+        if (best != index) {
+            moves.swap(index, best);
+            int score = plyScores[index];
+            plyScores[index] = plyScores[best];
+            plyScores[best] = score;
+        }
+        return moves.get(index);
+    }
+
+    /**
+     * @param m   an encoded move
+     * @param ply the ply of the node
+     * @return true if the move is one of the killers of the ply
+     */
+    public boolean isKiller(int m, int ply) {
+        return m == killers[ply][0] || m == killers[ply][1];
+    }
+
+    /**
+     * Remembers a quiet move that caused a cutoff, as a killer of its ply and in the history
+     * @param m     the move, captures and promotions are ordered without it and are not remembered
+     * @param ply   the ply of the node
+     * @param depth the depth that was left at the node
+     */
+    public void cutoff(int m, int ply, int depth) {
+        if (Move.isCapture(m) || Move.isPromotion(m)) {
+            return;
+        }
+        int[] plyKillers = killers[ply];
+        if (plyKillers[0] != m) {
+            plyKillers[1] = plyKillers[0];
+            plyKillers[0] = m;
+        }
+        int[] pieceHistory = history[Move.getMovingPiece(m)];
+        pieceHistory[Move.getTo(m)] += depth * depth;
+        if (pieceHistory[Move.getTo(m)] >= MAX_HISTORY) {
+            ageHistory();
+        }
+    }
+
+    private void ageHistory() {
+        for (int[] pieceHistory : history) {
+            for (int to = 0; to < pieceHistory.length; to++) {
+                pieceHistory[to] /= 2;
+            }
+        }
+    }
+}
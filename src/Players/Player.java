@@ -1,6 +1,7 @@
 package Players;
 
 import java.awt.event.MouseEvent;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Random;
@@ -25,6 +26,16 @@ public abstract class Player implements Runnable {
         this.board = e.getBoard();
     }
 
+    /**
+     * A player without an engine, that only searches a board
+     * @param color the color of the player
+     * @param board the board
+     */
+    protected Player(int color, Board board) {
+        this.color = color;
+        this.board = board;
+    }
+
     public int getColor() {
         return this.color;
     }
@@ -61,7 +72,7 @@ public abstract class Player implements Runnable {
      * @return A random move
      */
     protected Move getRandomValidMove(Board board) {
-        List<Move> possibleMoves = board.getMoves();
+        List<Move> possibleMoves = new ArrayList<>(board.getMoves()); // a copy, the list of the board is cached
         Collections.shuffle(possibleMoves);
         return possibleMoves.isEmpty() ? null : possibleMoves.get(0);
     }
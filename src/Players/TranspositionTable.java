@@ -0,0 +1,166 @@
+package Players;
+
+import state.Move;
+
+/**
+ * A fixed size table that remembers what the search found out about a position: the best move, the score, the depth
+ * it was searched to, whether the score is exact or a bound, and the search it was stored in. A position that is
+ * reached again, through a transposition or in the next iteration, can then be cut off or search its best move first.
+ *
+ * Every entry is two longs, like in the perft hash table: the key xor the data, and the data. A probe only hits if
+ * the key still comes out of the first long, so the whole key is verified and several search threads can share the
+ * table without locks: an entry that is half written by another thread looks like a miss. The data packs
+ * bits 0-15 the move (from, to and flags), bits 16-35 the score, bits 36-43 the depth, bits 44-45 the bound and bits
+ * 46-53 the age.
+ */
+public class TranspositionTable {
+    // The kinds of scores, none of them is 0 so a stored entry never has 0 as data
+    public static final int UPPER_BOUND = 1; // no move reached alpha, the score is at most this
+    public static final int LOWER_BOUND = 2; // a move reached beta, the score is at least this
+    public static final int EXACT = 3;
+    public static final long NONE = 0; // the data of a miss
+
+    private static final int ENTRY_SIZE = 2; // longs per entry
+    private static final int SCORE_SHIFT = 16;
+    private static final int SCORE_BITS = 20;
+    private static final int DEPTH_SHIFT = 36;
+    private static final int BOUND_SHIFT = 44;
+    private static final int AGE_SHIFT = 46;
+
+    private final long[] table;
+    private final int mask; // the amount of entries - 1, the amount of entries is a power of 2
+    private int age = 0; // the search the entries are stored in, only the last 8 bits are kept
+
+    /**
+     * Makes a table of at most a certain size
+     * @param megabytes the size in megabytes, rounded down to a power of 2 amount of entries
+     * @throws IllegalArgumentException if the size is smaller than 1 MB or too large for one array
+     */
+    public TranspositionTable(int megabytes) {
+        if (megabytes < 1 || megabytes > 16384) {
+            throw new IllegalArgumentException("The size of the transposition table should be between 1 and 16384 MB");
+        }
+        long entries = Long.highestOneBit((long) megabytes * 1024 * 1024 / (ENTRY_SIZE * Long.BYTES));
+        entries = Math.min(entries, Integer.highestOneBit(Integer.MAX_VALUE / ENTRY_SIZE));
+        this.table = new long[(int) entries * ENTRY_SIZE];
+        this.mask = (int) entries - 1;
+    }
+
+    /**
+     * Starts a new search, the entries of older searches are replaced first
+     */
+    public void newSearch() {
+        age = (age + 1) & 0xff;
+    }
+
+    /**
+     * Looks up a position
+     * @param key the hash key of the position
+     * @return the data of the entry, NONE if the position is not in the table
+     */
+    public long probe(long key) {
+        int index = index(key);
+        long data = table[index + 1];
+        return (table[index] ^ data) == key ? data : NONE;
+    }
+
+    /**
+     * Stores what the search found for a position. An entry of another position is only replaced if it is from an
+     * older search or was not searched deeper, so the expensive entries of this search stay.
+     * @param key   the hash key of the position
+     * @param move  the best move packed with compress, 0 if there is none
+     * @param score the score, mate scores relative to the root
+     * @param depth the depth the position was searched to
+     * @param bound UPPER_BOUND, LOWER_BOUND or EXACT
+     * @param ply   the distance to the root, to store mate scores relative to this position
+     */
+    public void store(long key, int move, int score, int depth, int bound, int ply) {
+        int index = index(key);
+        long old = table[index + 1];
+        if ((table[index] ^ old) != key && old != NONE && getAge(old) == age && getDepth(old) > depth) {
+            return;
+        }
+        long data = (long) (move & 0xffff) |
+                ((long) (toStored(score, ply) & ((1 << SCORE_BITS) - 1)) << SCORE_SHIFT) |
+                ((long) Math.min(Math.max(depth, 0), 0xff) << DEPTH_SHIFT) |
+                ((long) bound << BOUND_SHIFT) |
+                ((long) age << AGE_SHIFT);
+        table[index] = key ^ data;
+        table[index + 1] = data;
+    }
+
+    private int index(long key) {
+        return ((int) key & mask) * ENTRY_SIZE;
+    }
+
+    /**
+     * Packs a move in 16 bits: the 0 indexed from and to squares and the flags. That is enough to find it back in the
+     * list of legal moves, see matches.
+     * @param move the encoded move, 0 for none
+     * @return the 16 bit move, 0 for none
+     */
+    public static int compress(int move) {
+        if (move == 0) {
+            return 0;
+        }
+        return (Move.getFrom(move) - 1) << 10 | (Move.getTo(move) - 1) << 4 | Move.getFlags(move);
+    }
+
+    /**
+     * @param move       an encoded legal move
+     * @param compressed a 16 bit move from the table
+     * @return true if they are the same move
+     */
+    public static boolean matches(int move, int compressed) {
+        return compressed != 0 && compress(move) == compressed;
+    }
+
+    /**
+     * Mate scores are stored as the distance to the mate from the position instead of from the root, so they are
+     * still right when the position is reached at another ply
+     */
+    private static int toStored(int score, int ply) {
+        if (score >= AlphaBetaPlayer.MATE - AlphaBetaPlayer.MAX_PLY) return score + ply;
+        if (score <= -(AlphaBetaPlayer.MATE - AlphaBetaPlayer.MAX_PLY)) return score - ply;
+        return score;
+    }
+
+    /**
+     * @param data the data of an entry
+     * @return the 16 bit move, 0 if there is none
+     */
+    public static int getMove(long data) {
+        return (int) data & 0xffff;
+    }
+
+    /**
+     * @param data the data of an entry
+     * @param ply  the distance of the position to the root
+     * @return the score, mate scores relative to the root
+     */
+    public static int getScore(long data, int ply) {
+        int score = (int) (data >>> SCORE_SHIFT) << (32 - SCORE_BITS) >> (32 - SCORE_BITS); // sign extended
+        if (score >= AlphaBetaPlayer.MATE - AlphaBetaPlayer.MAX_PLY) return score - ply;
+        if (score <= -(AlphaBetaPlayer.MATE - AlphaBetaPlayer.MAX_PLY)) return score + ply;
+        return score;
+    }
+
+    public static int getDepth(long data) {
+        return (int) (data >>> DEPTH_SHIFT) & 0xff;
+    }
+
+    public static int getBound(long data) {
+        return (int) (data >>> BOUND_SHIFT) & 0x3;
+    }
+
+    public static int getAge(long data) {
+        return (int) (data >>> AGE_SHIFT) & 0xff;
+    }
+
+    /**
+     * @return the amount of entries in the table
+     */
+    public int size() {
+        return mask + 1;
+    }
+}
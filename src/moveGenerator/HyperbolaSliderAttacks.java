@@ -0,0 +1,50 @@
+package moveGenerator;
+
+import state.Constants;
+
+/**
+ * Slider attacks with hyperbola quintessence. For every line (rank, file or diagonal) through the slider, the attacks
+ * are calculated with o^(o-2s) for the positive ray and the same on the reversed bitboard for the negative ray.
+ * Only needs the line masks in Constants, so it has almost no memory footprint.
+ */
+public class HyperbolaSliderAttacks implements SliderAttacks {
+
+    @Override
+    public long rookAttacks(int square, long occupied) {
+        long slider = 1L << (63 - square);
+        return lineAttacks(slider, occupied, Constants.FILE_MASK[square % 8]) |
+                lineAttacks(slider, occupied, Constants.RANK_MASK[square / 8]);
+    }
+
+    @Override
+    public long bishopAttacks(int square, long occupied) {
+        long slider = 1L << (63 - square);
+        return lineAttacks(slider, occupied, Constants.DIAGONAL_MASK[square]) |
+                lineAttacks(slider, occupied, Constants.ANTIDIAGONAL_MASK[square]);
+    }
+
+    /**
+     * Calculates the attacks of one slider along one line. Example of one row:
+     * slider = 001000, occupied = 011010, result will be 010110
+     *
+     * @param slider    a bitboard containing exactly one slider
+     * @param occupied  a bitboard containing the occupied squares
+     * @param lineMask  the line (rank, file or diagonal) through the slider
+     * @return the attacked squares on this line, including the blocker
+     */
+    static long lineAttacks(long slider, long occupied, long lineMask) {
+        long forward = occupied & lineMask; // all potential blockers
+        long reverse = Long.reverse(forward); // for the negative rays
+        forward -= 2 * slider; // -2s
+        reverse -= 2 * Long.reverse(slider); // for the negative rays the same
+        // Another xor with o is omitted, because when done in both the positive and negative rays, they cancel each
+        // other out (o^o = 0)
+        forward ^= Long.reverse(reverse); // negative and positive rays xor'ed.
+        return forward & lineMask & ~slider; // mask again and remove the piece itself
+    }
+
+    @Override
+    public String toString() {
+        return "hyperbola";
+    }
+}
@@ -0,0 +1,77 @@
+package moveGenerator;
+
+import state.Constants;
+
+/**
+ * Slider attacks with Kogge-Stone occluded fills. Instead of shifting seven times per direction, the sliders and the
+ * empty squares are propagated with shifts of 1, 2 and 4 steps. Works on all the sliders of a bitboard at once and
+ * does not need any tables.
+ */
+public class KoggeStoneSliderAttacks implements SliderAttacks {
+
+    @Override
+    public long rookAttacks(int square, long occupied) {
+        return rookAttacksSetwise(1L << (63 - square), occupied);
+    }
+
+    @Override
+    public long bishopAttacks(int square, long occupied) {
+        return bishopAttacksSetwise(1L << (63 - square), occupied);
+    }
+
+    @Override
+    public long rookAttacksSetwise(long rooks, long occupied) {
+        long empty = ~occupied;
+        return fillDown(rooks, empty, 8, -1L) | // north
+                fillUp(rooks, empty, 8, -1L) | // south
+                fillDown(rooks, empty, 1, Constants.NOT_A_FILE) | // east
+                fillUp(rooks, empty, 1, Constants.NOT_H_FILE); // west
+    }
+
+    @Override
+    public long bishopAttacksSetwise(long bishops, long occupied) {
+        long empty = ~occupied;
+        return fillDown(bishops, empty, 9, Constants.NOT_A_FILE) | // north east
+                fillDown(bishops, empty, 7, Constants.NOT_H_FILE) | // north west
+                fillUp(bishops, empty, 7, Constants.NOT_A_FILE) | // south east
+                fillUp(bishops, empty, 9, Constants.NOT_H_FILE); // south west
+    }
+
+    /**
+     * An occluded fill in a direction that shifts the bits to lower positions (north and east in this layout), followed
+     * by one more shift to get the attacks.
+     *
+     * @param sliders  the sliders to fill from
+     * @param empty    the empty squares
+     * @param shift    the amount of bits one step in this direction shifts
+     * @param wrapMask the squares that can be reached in one step without wrapping around the board
+     * @return the attacked squares in this direction, including the blockers
+     */
+    private static long fillDown(long sliders, long empty, int shift, long wrapMask) {
+        empty &= wrapMask;
+        sliders |= empty & (sliders >>> shift);
+        empty &= empty >>> shift;
+        sliders |= empty & (sliders >>> (2 * shift));
+        empty &= empty >>> (2 * shift);
+        sliders |= empty & (sliders >>> (4 * shift));
+        return (sliders >>> shift) & wrapMask;
+    }
+
+    /**
+     * The same as fillDown, for the directions that shift the bits to higher positions (south and west).
+     */
+    private static long fillUp(long sliders, long empty, int shift, long wrapMask) {
+        empty &= wrapMask;
+        sliders |= empty & (sliders << shift);
+        empty &= empty << shift;
+        sliders |= empty & (sliders << (2 * shift));
+        empty &= empty << (2 * shift);
+        sliders |= empty & (sliders << (4 * shift));
+        return (sliders << shift) & wrapMask;
+    }
+
+    @Override
+    public String toString() {
+        return "koggestone";
+    }
+}
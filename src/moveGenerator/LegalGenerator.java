@@ -4,8 +4,8 @@ import state.Bitboard;
 import state.Board;
 import state.Constants;
 import state.Move;
+import state.Rays;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -13,6 +13,89 @@ import java.util.List;
  */
 public class LegalGenerator {
 
+    private static final SliderAttacks SLIDER_ATTACKS = SliderAttacks.fromSystemProperty(); // final, so the calls can be inlined
+
+    /**
+     * Gets the slider attack implementation that is used, chosen with the system property sliderAttacks
+     * @return the implementation that calculates the slider attacks
+     */
+    public static SliderAttacks getSliderAttacks() {
+        return SLIDER_ATTACKS;
+    }
+
+    /**
+     * The squares attacked by a rook. Includes the blockers of both colors.
+     *
+     * @param square   the square of the rook, 0 indexed (a1 = 0, h8 = 63) as in the attack arrays in Constants
+     * @param occupied a bitboard containing the occupied squares
+     * @return a bitboard of all the squares the rook attacks
+     */
+    public static long rookAttacks(int square, long occupied) {
+        return SLIDER_ATTACKS.rookAttacks(square, occupied);
+    }
+
+    /**
+     * The squares attacked by a bishop. Includes the blockers of both colors.
+     *
+     * @param square   the square of the bishop, 0 indexed (a1 = 0, h8 = 63) as in the attack arrays in Constants
+     * @param occupied a bitboard containing the occupied squares
+     * @return a bitboard of all the squares the bishop attacks
+     */
+    public static long bishopAttacks(int square, long occupied) {
+        return SLIDER_ATTACKS.bishopAttacks(square, occupied);
+    }
+
+    /**
+     * The squares attacked by a queen, the combination of the rook and the bishop attacks.
+     *
+     * @param square   the square of the queen, 0 indexed
+     * @param occupied a bitboard containing the occupied squares
+     * @return a bitboard of all the squares the queen attacks
+     */
+    public static long queenAttacks(int square, long occupied) {
+        return rookAttacks(square, occupied) | bishopAttacks(square, occupied);
+    }
+
+    // A copy of the bitboards of the board the moves are generated for, reused so generating does not allocate
+    private final long[] bitboards = new long[14];
+
+    // The state of the position that generating and counting both need first, filled by findCheckersAndPins
+    private long ownPieces;
+    private long opponentPieces;
+    private long occupied;
+    private long king;
+    private int kingSquare; // 0 indexed
+    private long checkers; // the pieces of the opponent that give check
+    private long kingDangerSquares; // the squares attacked by the opponent, as if the king was not on the board
+    private long opponentRookSliders;
+    private long opponentBishopSliders;
+    private long pinned; // only found if there is at most one checker
+
+    // The targets of the pawns that are not pinned, moved all at once. Filled by findPawnTargets
+    private long pawnPushes;
+    private long pawnDoublePushes;
+    private long pawnEastCaptures;
+    private long pawnWestCaptures;
+
+    // The kinds of moves to generate, combined as bits
+    private static final int CAPTURES = 1; // captures, en passent captures and all promotions
+    private static final int QUIETS = 1 << 1; // all the other moves, including castling
+    private static final int ALL_MOVES = CAPTURES | QUIETS;
+
+    // The kinds of check a move gives, see givesCheck. A double check is both a direct and a discovered check
+    public static final int NO_CHECK = 0;
+    public static final int DIRECT_CHECK = 1; // the piece that moves gives check
+    public static final int DISCOVERED_CHECK = 1 << 1; // a piece that does not move gives check
+    public static final int DOUBLE_CHECK = DIRECT_CHECK | DISCOVERED_CHECK;
+
+    // What tells whether a move of the color to move gives check, filled by findCheckSquares. It has its own copy of
+    // the bitboards, so generating or counting moves in between does not change it.
+    private final long[] checkBitboards = new long[14];
+    private final long[] checkSquares = new long[Constants.PAWN + 1]; // by piece type, the squares giving direct check
+    private long discoverers; // the own pieces that are the only blocker between an own slider and the opponent king
+    private long checkOccupied;
+    private int opponentKingSquare; // 0 indexed
+    private int checkColor;
 
     /**
      * Gets the legal moves for color @param color
@@ -21,236 +104,766 @@ public class LegalGenerator {
      * @return a list of legal moves
      */
     public List<Move> getMoves(Board board, int color) {
-        long[] bitboards = board.getBitboards();
-        long ownPieces = board.isWhiteToMove() ? board.getWhitePieces() : board.getBlackPieces();
-        long opponentPieces = board.isWhiteToMove() ? board.getBlackPieces() : board.getWhitePieces();
-        long occupied = board.getOccupied();
-        long kingPosition = bitboards[Constants.KING | color];
+        MoveList moves = new MoveList();
+        generateMoves(board, color, moves);
+        return moves.toList();
+    }
+
+    /**
+     * Generates the legal moves for color @param color into a move list. Nothing is allocated, so this is the one to
+     * use in the search and in perft.
+     * @param board, the board entity containing the current state
+     * @param color, one of Constants.WHITE/BLACK, the color to get the moves for
+     * @param moves, the list to write the encoded moves to, it is cleared first
+     */
+    public void generateMoves(Board board, int color, MoveList moves) {
+        generate(board, color, moves, ALL_MOVES);
+    }
+
+    /**
+     * Generates only the legal captures, en passent captures and promotions (also the ones that do not capture).
+     * These are the moves a quiescence search looks at.
+     * @param board, the board entity containing the current state
+     * @param color, one of Constants.WHITE/BLACK, the color to get the moves for
+     * @param moves, the list to write the encoded moves to, it is cleared first
+     */
+    public void generateCaptures(Board board, int color, MoveList moves) {
+        generate(board, color, moves, CAPTURES);
+    }
+
+    /**
+     * Generates only the legal moves that generateCaptures leaves out: the quiet moves, double pushes and castling.
+     * @param board, the board entity containing the current state
+     * @param color, one of Constants.WHITE/BLACK, the color to get the moves for
+     * @param moves, the list to write the encoded moves to, it is cleared first
+     */
+    public void generateQuiets(Board board, int color, MoveList moves) {
+        generate(board, color, moves, QUIETS);
+    }
+
+    /**
+     * Generates the legal moves when the king is in check: the king moves to squares that are not attacked, and with a
+     * single checker the captures of the checker and the moves in between it and a checking slider. No other piece is
+     * looked at. generateMoves takes this path as well when the king is in check, so it gives the same moves.
+     * @param board, the board entity containing the current state
+     * @param color, one of Constants.WHITE/BLACK, the color to get the moves for
+     * @param moves, the list to write the encoded moves to, it is cleared first
+     * @throws IllegalArgumentException if the king of this color is not in check
+     */
+    public void generateEvasions(Board board, int color, MoveList moves) {
+        moves.clear();
+        int numCheckers = findCheckersAndPins(board, color);
+        if (numCheckers == 0) {
+            throw new IllegalArgumentException("The king is not in check, there are no evasions to generate");
+        }
+        addEvasions(moves, board, color, ALL_MOVES, numCheckers);
+    }
+
+    /**
+     * Counts the legal moves of the color to move without generating them. The target squares are found the same way
+     * as in generateMoves, but only their popcounts are added up, so no move is encoded or stored. This is what perft
+     * needs at the last ply, where the moves themselves are never made.
+     * @param board, the board entity containing the current state
+     * @return the amount of legal moves, the same as the size of the list generateMoves gives
+     */
+    public int countLegalMoves(Board board) {
+        int color = board.colorToMove();
+        int numCheckers = findCheckersAndPins(board, color);
+        long targets = ~ownPieces;
+        int count = Bitboard.getPopCount(Constants.KING_ATTACKS[kingSquare] & targets & ~kingDangerSquares);
+        if (numCheckers > 1) { // double check, only king moves valid
+            return count;
+        }
+        if (numCheckers == 1) {
+            return count + countEvasions(board, color, Rays.BETWEEN[kingSquare][Long.numberOfLeadingZeros(checkers)]);
+        }
+
+        if (canCastleKingSide(board, color)) count++;
+        if (canCastleQueenSide(board, color)) count++;
+
+        // every pawn move to the last rank is four moves, one for every promotion piece
+        long pawns = bitboards[Constants.PAWN | color];
+        long lastRank = color == Constants.WHITE ? Constants.EIGHTH_RANK : Constants.FIRST_RANK;
+        findPawnTargets(pawns & ~pinned, color);
+        count += Bitboard.getPopCount(pawnPushes & ~lastRank) + Bitboard.getPopCount(pawnDoublePushes) +
+                Bitboard.getPopCount(pawnEastCaptures & ~lastRank) + Bitboard.getPopCount(pawnWestCaptures & ~lastRank);
+        count += 4 * (Bitboard.getPopCount(pawnPushes & lastRank) + Bitboard.getPopCount(pawnEastCaptures & lastRank) +
+                Bitboard.getPopCount(pawnWestCaptures & lastRank));
+
+        long pinnedPawns = pawns & pinned;
+        while (pinnedPawns != 0) {
+            long p = Bitboard.leastSignificantBit(pinnedPawns);
+            pinnedPawns = Bitboard.resetLeastSignificantBit(pinnedPawns);
+            long pinMask = Rays.LINE[kingSquare][Long.numberOfLeadingZeros(p)];
+            long push = (color == Constants.WHITE ? Bitboard.nortOne(p) : Bitboard.soutOne(p)) & ~occupied;
+            long doublePush = (color == Constants.WHITE ?
+                    Bitboard.nortOne(push & Constants.THIRD_RANK) :
+                    Bitboard.soutOne(push & Constants.SIXTH_RANK)) & ~occupied;
+            long singleMoves = (push | (getPawnAttackSquares(p, color) & opponentPieces)) & pinMask;
+            count += Bitboard.getPopCount(singleMoves & ~lastRank) + 4 * Bitboard.getPopCount(singleMoves & lastRank) +
+                    Bitboard.getPopCount(doublePush & pinMask);
+        }
 
-        List<Move> moves = new ArrayList<>();
+        long enPassentSquare = board.getEnPassenSquareBitboard();
+        if (enPassentSquare != 0) {
+            long enPassentCaptureSquare = color == Constants.WHITE ? Bitboard.soutOne(enPassentSquare) : Bitboard.nortOne(enPassentSquare);
+            long enPassentAttackers = getPawnAttackSquares(enPassentSquare, color^1) & pawns;
+            while (enPassentAttackers != 0) {
+                long p = Bitboard.leastSignificantBit(enPassentAttackers);
+                enPassentAttackers = Bitboard.resetLeastSignificantBit(enPassentAttackers);
+                if (isEnPassentLegal(p, enPassentSquare, enPassentCaptureSquare)) count++;
+            }
+        }
 
+        // a pinned knight can never move, the pinned sliders only along their pin ray
+        long knights = bitboards[Constants.KNIGHT | color] & ~pinned;
+        while (knights != 0) {
+            int square = Long.numberOfLeadingZeros(Bitboard.leastSignificantBit(knights));
+            knights = Bitboard.resetLeastSignificantBit(knights);
+            count += Bitboard.getPopCount(Constants.KNIGHT_ATTACKS[square] & targets);
+        }
+        long rookSliders = bitboards[Constants.ROOK | color] | bitboards[Constants.QUEEN | color];
+        while (rookSliders != 0) {
+            long r = Bitboard.leastSignificantBit(rookSliders);
+            rookSliders = Bitboard.resetLeastSignificantBit(rookSliders);
+            int square = Long.numberOfLeadingZeros(r);
+            long pinMask = (r & pinned) == 0 ? 0xFFFFFFFFFFFFFFFFL : Rays.LINE[kingSquare][square];
+            count += Bitboard.getPopCount(rookAttacks(square, occupied) & targets & pinMask);
+        }
+        long bishopSliders = bitboards[Constants.BISHOP | color] | bitboards[Constants.QUEEN | color];
+        while (bishopSliders != 0) {
+            long b = Bitboard.leastSignificantBit(bishopSliders);
+            bishopSliders = Bitboard.resetLeastSignificantBit(bishopSliders);
+            int square = Long.numberOfLeadingZeros(b);
+            long pinMask = (b & pinned) == 0 ? 0xFFFFFFFFFFFFFFFFL : Rays.LINE[kingSquare][square];
+            count += Bitboard.getPopCount(bishopAttacks(square, occupied) & targets & pinMask);
+        }
+        return count;
+    }
+
+    /**
+     * Tells if the color to move has a legal move. When the king is in check it usually has a square to go to, so
+     * the squares around the king are tried one by one first. Only if none of them is safe is everything counted,
+     * which makes this much cheaper than countLegalMoves when looking for mate.
+     * @param board, the board entity containing the current state
+     * @return true if there is at least one legal move
+     */
+    public boolean hasLegalMoves(Board board) {
+        board.copyBitboards(bitboards);
+        int color = board.colorToMove();
         long king = bitboards[Constants.KING | color];
-        long occupiedWithoutKing = occupied & ~king; // Remove the king to calculate king danger squares
-        long kingDangerSquares = getAttackedSquaresIncludingBlocked(bitboards, occupiedWithoutKing, color^1);
-        long kingMoves = Constants.KING_ATTACKS[Long.numberOfLeadingZeros(king)] & ~ownPieces; // numberOfLeadingZeros is the square - 1
-        // but the index in the attack array is 0 based, so no +1 is needed.
-        // Add the king moves.
-        moves.addAll(convertBitboardToMoves(board, king, kingMoves, opponentPieces, ~kingDangerSquares, Constants.KING, color));
+        long ownPieces = color == Constants.WHITE ? board.getWhitePieces() : board.getBlackPieces();
+        long occupiedWithoutKing = board.getOccupied() & ~king; // the king does not block the attacks on its squares
+        long kingMoves = Constants.KING_ATTACKS[Long.numberOfLeadingZeros(king)] & ~ownPieces;
+        while (kingMoves != 0) {
+            int square = Long.numberOfLeadingZeros(Bitboard.leastSignificantBit(kingMoves));
+            kingMoves = Bitboard.resetLeastSignificantBit(kingMoves);
+            if (!isSquareAttacked(square, occupiedWithoutKing, color^1)) {
+                return true;
+            }
+        }
+        return countLegalMoves(board) > 0;
+    }
+
+    /**
+     * Finds whether a square is attacked, by looking from the square for the pieces that attack it. Uses the
+     * bitboards that were copied last.
+     * @param square   the square, 0 indexed
+     * @param occupied the occupied squares
+     * @param color    the attacking color
+     * @return true if a piece of the color attacks the square
+     */
+    private boolean isSquareAttacked(int square, long occupied, int color) {
+        long squareBit = 1L << (63 - square);
+        return (Constants.KNIGHT_ATTACKS[square] & bitboards[Constants.KNIGHT | color]) != 0 ||
+                (Constants.KING_ATTACKS[square] & bitboards[Constants.KING | color]) != 0 ||
+                (getPawnAttackSquares(squareBit, color^1) & bitboards[Constants.PAWN | color]) != 0 ||
+                (rookAttacks(square, occupied) & (bitboards[Constants.ROOK | color] | bitboards[Constants.QUEEN | color])) != 0 ||
+                (bishopAttacks(square, occupied) & (bitboards[Constants.BISHOP | color] | bitboards[Constants.QUEEN | color])) != 0;
+    }
 
+    /**
+     * Copies the bitboards of the board and finds what every kind of generation needs first: the checkers, the
+     * squares the king can not move to and the pinned pieces. They are kept in the fields.
+     * @param board, the board entity containing the current state
+     * @param color, one of Constants.WHITE/BLACK, the color to get the moves for
+     * @return the amount of pieces that give check
+     */
+    private int findCheckersAndPins(Board board, int color) {
+        board.copyBitboards(bitboards);
+        ownPieces = board.isWhiteToMove() ? board.getWhitePieces() : board.getBlackPieces();
+        opponentPieces = board.isWhiteToMove() ? board.getBlackPieces() : board.getWhitePieces();
+        occupied = board.getOccupied();
 
+        king = bitboards[Constants.KING | color];
+        kingSquare = Long.numberOfLeadingZeros(king); // 0 indexed
 
         //Find the checkers
-        long checkers = 0L;
         // Find opposite color rooks that attack this king
-        long rookCheckers = getAxisAlignedAttackSquaresIncludingBlocked(king, occupied) & bitboards[Constants.ROOK | color^1];
+        long rookCheckers = rookAttacks(kingSquare, occupied) & bitboards[Constants.ROOK | color^1];
         // Opposite color bishops that attack this king
-        long bishopCheckers = getDiagonalAttackSquaresIncludingBlocked(king, occupied) & bitboards[Constants.BISHOP | color^1];
+        long bishopCheckers = bishopAttacks(kingSquare, occupied) & bitboards[Constants.BISHOP | color^1];
         // Queens
-        long queenCheckers = getQueenAttackSquaresIncludingBlocked(king, occupied) & bitboards[Constants.QUEEN | color^1];
+        long queenCheckers = queenAttacks(kingSquare, occupied) & bitboards[Constants.QUEEN | color^1];
         // Knights
         long knightCheckers = getKnightAttackSquaresIncludingBlocked(king) & bitboards[Constants.KNIGHT | color^1];
         // Pawns, suppose there was a pawn on this kings place. If its attacks land on a pawn of the opponent, this king is
         // in check by that pawn. Therefore we want to get the attack squares of the pawns of this color and not the opposite.
         long pawnCheckers = getPawnAttackSquares(king, color) & bitboards[Constants.PAWN | color^1];
 
-        checkers |= rookCheckers | bishopCheckers | queenCheckers | knightCheckers | pawnCheckers;
-
+        checkers = rookCheckers | bishopCheckers | queenCheckers | knightCheckers | pawnCheckers;
         int numCheckers = Bitboard.getPopCount(checkers);
-        if (numCheckers > 1) { // double check, only king moves valid
-            return moves;
-        }
 
-        long captureMask = 0xFFFFFFFFFFFFFFFFL; // Where captures are possible, only the checkers if there is a check
-        long pushMask = 0xFFFFFFFFFFFFFFFFL; // Where quiet moves are possible, only the attack rays of sliders if there is a check
+        long occupiedWithoutKing = occupied & ~king; // Remove the king to calculate king danger squares
+        kingDangerSquares = getAttackedSquaresIncludingBlocked(bitboards, occupiedWithoutKing, color^1);
 
-        if (numCheckers == 1) {
-            // if ony one checker, we can evade check by capturing it
-            captureMask = checkers;
-
-            // If the piece giving check is a slider, we can evade check by blocking it
-            int checkerSquare = Long.numberOfLeadingZeros(Bitboard.leastSignificantBit(checkers)) + 1;
-            if (board.isSlider(checkerSquare)) {
-                pushMask = getCombinedSliderRaysToSquare(king, bitboards[Constants.BISHOP | color^1], bitboards[Constants.QUEEN | color^1],
-                        bitboards[Constants.ROOK | color^1], occupied) & ~checkers; // This would also result in the attackers themselves.
-                // There can only be one attacker at this point (only one checker), so to get the push mask it suffices
-                // to delete the checker(s).
-            } else {
-                pushMask = 0L; // If the checker is not a slider, no push can evade check.
-            }
+        // Find the pinned pieces once, the pieces that are not pinned can skip all the pin logic
+        opponentRookSliders = bitboards[Constants.ROOK | color^1] | bitboards[Constants.QUEEN | color^1];
+        opponentBishopSliders = bitboards[Constants.BISHOP | color^1] | bitboards[Constants.QUEEN | color^1];
+        pinned = numCheckers > 1 ? 0L : // in double check only the king moves, so the pins do not matter
+                findPinnedPieces(kingSquare, ownPieces, occupied, opponentRookSliders, opponentBishopSliders);
+        return numCheckers;
+    }
+
+    /**
+     * Generates the legal moves of some kinds. The checkers and the pins are found first, the same for every kind.
+     * If the king is in check, only the evasions are generated, see generateEvasions.
+     * @param board, the board entity containing the current state
+     * @param color, one of Constants.WHITE/BLACK, the color to get the moves for
+     * @param moves, the list to write the encoded moves to, it is cleared first
+     * @param kinds, the kinds of moves to generate, CAPTURES and/or QUIETS
+     */
+    private void generate(Board board, int color, MoveList moves, int kinds) {
+        moves.clear();
+        int numCheckers = findCheckersAndPins(board, color);
+        if (numCheckers > 0) {
+            addEvasions(moves, board, color, kinds, numCheckers);
+            return;
         }
+        boolean captures = (kinds & CAPTURES) != 0;
+        boolean quiets = (kinds & QUIETS) != 0;
+        // The squares the pieces can move to, depending on the kinds of moves
+        long targets = (captures ? opponentPieces : 0L) | (quiets ? ~occupied : 0L);
+
+        long kingMoves = Constants.KING_ATTACKS[kingSquare] & targets; // targets never contains own pieces
+        // Add the king moves.
+        addMoves(moves, board, king, kingMoves, opponentPieces, ~kingDangerSquares, Constants.KING, color);
 
         //castling
-        if (numCheckers == 0) { // can only castle if not in check
-            if (color == Constants.WHITE) {
-                if (board.isWhiteKingSideCastle()) {
-                    if ((occupied & 0x0600000000000000L) == 0) { // no pieces in between
-                        if ((0x0600000000000000L & getAttackedSquaresIncludingBlocked(bitboards, occupied, Constants.BLACK)) == 0) { // not in or over check
-                            moves.add(new Move(5, 7, Constants.WHITE_KING, Constants.EMPTY, 2));
-                        }
-                    }
-                }
-                if (board.isWhiteQueenSideCastle()) {
-                    if ((occupied & 0x7000000000000000L) == 0) { // no pieces in between
-                        if ((0x3000000000000000L & getAttackedSquaresIncludingBlocked(bitboards, occupied, Constants.BLACK)) == 0) { // not in or over check
-                            moves.add(new Move(5, 3, Constants.WHITE_KING, Constants.EMPTY, 3));
-                        }
-                    }
-                }
-            } else { // black
-                if (board.isBlackKingSideCastle()) {
-                    if ((occupied & 0x0000000000000006L) == 0) { // no pieces in between
-                        if ((0x0000000000000006L & getAttackedSquaresIncludingBlocked(bitboards, occupied, Constants.WHITE)) == 0) { // not in or over check
-                            moves.add(new Move(61, 63, Constants.BLACK_KING, Constants.EMPTY, 2));
-                        }
-                    }
-                }
-                if (board.isBlackQueenSideCastle()) {
-                    if ((occupied & 0x0000000000000070L) == 0) { // no pieces in between
-                        if ((0x0000000000000030L & getAttackedSquaresIncludingBlocked(bitboards, occupied, Constants.WHITE)) == 0) { // not in or over check
-                            moves.add(new Move(61, 59, Constants.BLACK_KING, Constants.EMPTY, 3));
-                        }
-                    }
-                }
+        if (quiets) { // can only castle if not in check, which is always the case here
+            int kingFrom = color == Constants.WHITE ? 5 : 61;
+            if (canCastleKingSide(board, color)) {
+                moves.add(Move.encode(kingFrom, kingFrom + 2, Constants.KING | color, Constants.EMPTY, 2));
+            }
+            if (canCastleQueenSide(board, color)) {
+                moves.add(Move.encode(kingFrom, kingFrom - 2, Constants.KING | color, Constants.EMPTY, 3));
             }
         }
 
-        // get all the pawn moves
+        // get all the pawn moves. The pawns that are not pinned are moved all at once by shifting the bitboard
         long pawns = bitboards[Constants.PAWN | color];
-        for (long p : getIndividualPieces(pawns)) {
-            long possiblePawnAttacks = getPawnAttackSquares(p, color);
-            long possibleCaptures = possiblePawnAttacks & opponentPieces; // can only capture opponent pieces
-            long possibleEnPassentCapture = possiblePawnAttacks & board.getEnPassenSquareBitboard();
-            long lastRank = color == Constants.WHITE ? Constants.EIGHTH_RANK : Constants.FIRST_RANK;
-            long possiblePawnPushes;
-            long possiblePawnDoublePushes = 0;
-            if (color == Constants.WHITE) {
-                possiblePawnPushes = Bitboard.nortOne(p) & ~occupied;
-                if ((p & Constants.SECOND_RANK) != 0) { //double move possible
-                    possiblePawnDoublePushes = Bitboard.nortOne(possiblePawnPushes) & ~occupied;
-                }
-            } else {
-                possiblePawnPushes = Bitboard.soutOne(p) & ~occupied;
-                if ((p & Constants.SEVENTH_RANK) != 0) { // double move possible
-                    possiblePawnDoublePushes = Bitboard.soutOne(possiblePawnPushes) & ~occupied;
-                }
-            }
-            possiblePawnPushes &= pushMask;
-            possiblePawnDoublePushes &= pushMask;
-            possibleCaptures &= captureMask;
+        long empty = ~occupied;
+        long lastRank = color == Constants.WHITE ? Constants.EIGHTH_RANK : Constants.FIRST_RANK;
+        findPawnTargets(pawns & ~pinned, color);
+        // to - from for every kind of move, 1 indexed
+        int pushOffset = color == Constants.WHITE ? 8 : -8;
+        int eastOffset = color == Constants.WHITE ? 9 : -7;
+        int westOffset = color == Constants.WHITE ? 7 : -9;
+        if (captures) { // all promotions count as captures
+            addPawnMovesByOffset(moves, board, pawnEastCaptures & ~lastRank, eastOffset, color, 4);
+            addPawnMovesByOffset(moves, board, pawnWestCaptures & ~lastRank, westOffset, color, 4);
+            addPawnMovesByOffset(moves, board, pawnEastCaptures & lastRank, eastOffset, color, 12);
+            addPawnMovesByOffset(moves, board, pawnWestCaptures & lastRank, westOffset, color, 12);
+            addPawnMovesByOffset(moves, board, pawnPushes & lastRank, pushOffset, color, 8);
+        }
+        if (quiets) {
+            addPawnMovesByOffset(moves, board, pawnPushes & ~lastRank, pushOffset, color, 0);
+            addPawnMovesByOffset(moves, board, pawnDoublePushes, 2 * pushOffset, color, 1);
+        }
+
+        // The few pinned pawns can only move along their pin ray, they are handled one by one
+        long pinnedPawns = pawns & pinned;
+        while (pinnedPawns != 0) {
+            long p = Bitboard.leastSignificantBit(pinnedPawns);
+            pinnedPawns = Bitboard.resetLeastSignificantBit(pinnedPawns);
+            long pinMask = Rays.LINE[kingSquare][Long.numberOfLeadingZeros(p)];
+            long possibleCaptures = getPawnAttackSquares(p, color) & opponentPieces; // can only capture opponent pieces
+            long possiblePawnPushes = (color == Constants.WHITE ? Bitboard.nortOne(p) : Bitboard.soutOne(p)) & empty;
+            long possiblePawnDoublePushes = (color == Constants.WHITE ?
+                    Bitboard.nortOne(possiblePawnPushes & Constants.THIRD_RANK) :
+                    Bitboard.soutOne(possiblePawnPushes & Constants.SIXTH_RANK)) & empty;
 
-            long possiblePromotions = possiblePawnPushes & lastRank;
-            possiblePromotions |= possibleCaptures & lastRank; // capture and pushmask are already taken care of
+            // all promotions count as captures, the other pushes as quiet moves
+            long possiblePromotions = captures ? (possiblePawnPushes | possibleCaptures) & lastRank : 0L;
             // remove the promotions from the regular moves
-            possiblePawnPushes &= ~possiblePromotions;
-            possibleCaptures &= ~possiblePromotions;
-
-            // check en passent against pushmask and capturemask
-            long enPassentCaptureSquare = color == Constants.WHITE ? Bitboard.soutOne(possibleEnPassentCapture) : Bitboard.nortOne(possibleEnPassentCapture);
-            if ((enPassentCaptureSquare & captureMask) == 0 && (possibleEnPassentCapture & pushMask) == 0) {
-                //if the en passent move does not capture the checking piece or moves in between the checker and the king,
-                //the en passent is not valid and it will be set to 0
-                possibleEnPassentCapture = 0;
-            }
-            List<Long> sliderRaysToKing = getSliderRaysToSquare(kingPosition, bitboards[Constants.BISHOP | color^1],
-                    bitboards[Constants.QUEEN | color^1], bitboards[Constants.ROOK | color^1], occupied & ~p);
-            long pinningRay = getIntersectingRay(sliderRaysToKing, p);
-            moves.addAll(convertPawnBitboardToMoves(board, p, possiblePawnPushes | possibleCaptures, pinningRay,
-                    opponentPieces, color, false, false, false));
-            moves.addAll(convertPawnBitboardToMoves(board, p, possiblePawnDoublePushes, pinningRay, opponentPieces, color,
-                    false, false, true));
-            moves.addAll(convertPawnBitboardToMoves(board, p, possiblePromotions, pinningRay, opponentPieces, color,
-                    false, true, false));
-
-            // For en passent captures, also check if the capture does not put the king into check by removing the captured pawn
-            sliderRaysToKing = getSliderRaysToSquare(kingPosition, bitboards[Constants.BISHOP | color^1],
-                    bitboards[Constants.QUEEN | color^1], bitboards[Constants.ROOK | color^1], occupied & ~p & ~enPassentCaptureSquare);
-            pinningRay = getIntersectingRay(sliderRaysToKing, p);
-            moves.addAll(convertPawnBitboardToMoves(board, p, possibleEnPassentCapture, pinningRay, opponentPieces, color,
-                    true, false, false));
+            possiblePawnPushes &= quiets ? ~lastRank : 0L;
+            possiblePawnDoublePushes &= quiets ? 0xFFFFFFFFFFFFFFFFL : 0L;
+            possibleCaptures &= captures ? ~lastRank : 0L;
+
+            addPawnMoves(moves, board, p, possiblePawnPushes | possibleCaptures, pinMask, opponentPieces, color,
+                    false, false, false);
+            addPawnMoves(moves, board, p, possiblePawnDoublePushes, pinMask, opponentPieces, color,
+                    false, false, true);
+            addPawnMoves(moves, board, p, possiblePromotions, pinMask, opponentPieces, color,
+                    false, true, false);
         }
 
+        long enPassentSquare = board.getEnPassenSquareBitboard();
+        if (captures && enPassentSquare != 0) {
+            long enPassentCaptureSquare = color == Constants.WHITE ? Bitboard.soutOne(enPassentSquare) : Bitboard.nortOne(enPassentSquare);
+            long enPassentAttackers = getPawnAttackSquares(enPassentSquare, color^1) & pawns;
+            while (enPassentAttackers != 0) {
+                long p = Bitboard.leastSignificantBit(enPassentAttackers);
+                enPassentAttackers = Bitboard.resetLeastSignificantBit(enPassentAttackers);
+                if (isEnPassentLegal(p, enPassentSquare, enPassentCaptureSquare)) {
+                    addPawnMoves(moves, board, p, enPassentSquare, 0xFFFFFFFFFFFFFFFFL, opponentPieces, color,
+                            true, false, false);
+                }
+            }
+        }
         // get all the other moves while keeping track of pins
         // get the rook moves
         long rooks = bitboards[Constants.ROOK | color];
-        for (long r : getIndividualPieces(rooks)) {
-            long possibleMoves = getAxisAlignedAttackSquaresIncludingBlocked(r, occupied) & ~ownPieces; // make sure to not attack own pieces
-            possibleMoves &= captureMask | pushMask; // Apply the capture and push mask
-            List<Long> sliderRaysToKing = getSliderRaysToSquare(kingPosition, bitboards[Constants.BISHOP | color^1],
-                    bitboards[Constants.QUEEN | color^1], bitboards[Constants.ROOK | color^1], occupied & ~r); // remove r from occupied to see if it is pinned
-            long pinningRay = getIntersectingRay(sliderRaysToKing, r);
-            moves.addAll(convertBitboardToMoves(board, r, possibleMoves, opponentPieces, pinningRay, Constants.ROOK, color));
+        while (rooks != 0) {
+            long r = Bitboard.leastSignificantBit(rooks);
+            rooks = Bitboard.resetLeastSignificantBit(rooks);
+            long possibleMoves = rookAttacks(Long.numberOfLeadingZeros(r), occupied) & targets; // targets never contains own pieces
+            long pinMask = (r & pinned) == 0 ? 0xFFFFFFFFFFFFFFFFL : Rays.LINE[kingSquare][Long.numberOfLeadingZeros(r)];
+            addMoves(moves, board, r, possibleMoves, opponentPieces, pinMask, Constants.ROOK, color);
         }
 
         // get the bishop moves
         long bishops = bitboards[Constants.BISHOP | color];
-        for (long b : getIndividualPieces(bishops)) {
-            long possibleMoves = getDiagonalAttackSquaresIncludingBlocked(b, occupied) & ~ownPieces; // make sure to not attack own pieces
-            possibleMoves &= captureMask | pushMask; // Apply the capture and push mask
-            List<Long> sliderRaysToKing = getSliderRaysToSquare(kingPosition, bitboards[Constants.BISHOP | color^1],
-                    bitboards[Constants.QUEEN | color^1], bitboards[Constants.ROOK | color^1], occupied & ~b);
-            long pinningRay = getIntersectingRay(sliderRaysToKing, b);
-            moves.addAll(convertBitboardToMoves(board, b, possibleMoves, opponentPieces, pinningRay, Constants.BISHOP, color));
+        while (bishops != 0) {
+            long b = Bitboard.leastSignificantBit(bishops);
+            bishops = Bitboard.resetLeastSignificantBit(bishops);
+            long possibleMoves = bishopAttacks(Long.numberOfLeadingZeros(b), occupied) & targets;
+            long pinMask = (b & pinned) == 0 ? 0xFFFFFFFFFFFFFFFFL : Rays.LINE[kingSquare][Long.numberOfLeadingZeros(b)];
+            addMoves(moves, board, b, possibleMoves, opponentPieces, pinMask, Constants.BISHOP, color);
         }
 
         // get the knight moves
         long knights = bitboards[Constants.KNIGHT | color];
-        for (long k : getIndividualPieces(knights)) {
-            long possibleMoves = getKnightAttackSquaresIncludingBlocked(k) & ~ownPieces; // make sure to not attack own pieces
-            possibleMoves &= captureMask | pushMask; // Apply the capture and push mask
-            // legalmoves is 0 because the knight cannot be pinned
-            List<Long> sliderRaysToKing = getSliderRaysToSquare(kingPosition, bitboards[Constants.BISHOP | color^1],
-                    bitboards[Constants.QUEEN | color^1], bitboards[Constants.ROOK | color^1], occupied & ~k); // to check if the knight is pinned
-            long pinningRay = getIntersectingRay(sliderRaysToKing, k);
-            moves.addAll(convertBitboardToMoves(board, k, possibleMoves, opponentPieces, pinningRay, Constants.KNIGHT, color));
+        while (knights != 0) {
+            long k = Bitboard.leastSignificantBit(knights);
+            knights = Bitboard.resetLeastSignificantBit(knights);
+            long possibleMoves = getKnightAttackSquaresIncludingBlocked(k) & targets;
+            long pinMask = (k & pinned) == 0 ? 0xFFFFFFFFFFFFFFFFL : Rays.LINE[kingSquare][Long.numberOfLeadingZeros(k)];
+            addMoves(moves, board, k, possibleMoves, opponentPieces, pinMask, Constants.KNIGHT, color);
         }
 
         // get the queen moves
         long queens = bitboards[Constants.QUEEN | color];
-        for (long q : getIndividualPieces(queens)) {
-            long possibleMoves = getQueenAttackSquaresIncludingBlocked(q, occupied) & ~ownPieces; // make sure to not attack own pieces
-            possibleMoves &= captureMask | pushMask; // Apply the capture and push mask
-            List<Long> sliderRaysToKing = getSliderRaysToSquare(kingPosition, bitboards[Constants.BISHOP | color^1],
-                    bitboards[Constants.QUEEN | color^1], bitboards[Constants.ROOK | color^1], occupied & ~q);
-            long pinningRay = getIntersectingRay(sliderRaysToKing, q);
-            moves.addAll(convertBitboardToMoves(board, q, possibleMoves, opponentPieces, pinningRay, Constants.QUEEN, color));
+        while (queens != 0) {
+            long q = Bitboard.leastSignificantBit(queens);
+            queens = Bitboard.resetLeastSignificantBit(queens);
+            long possibleMoves = queenAttacks(Long.numberOfLeadingZeros(q), occupied) & targets;
+            long pinMask = (q & pinned) == 0 ? 0xFFFFFFFFFFFFFFFFL : Rays.LINE[kingSquare][Long.numberOfLeadingZeros(q)];
+            addMoves(moves, board, q, possibleMoves, opponentPieces, pinMask, Constants.QUEEN, color);
+        }
+    }
+
+    /**
+     * Checks if the king of the color to move can castle on the king side: the right is still there, the squares in
+     * between are empty and the king does not move out of, through or into check
+     * @param board, the board entity containing the current state
+     * @param color, one of Constants.WHITE/BLACK
+     * @return true if castling king side is legal
+     */
+    private boolean canCastleKingSide(Board board, int color) {
+        if (color == Constants.WHITE) {
+            return board.isWhiteKingSideCastle() && (occupied & 0x0600000000000000L) == 0 &&
+                    (0x0600000000000000L & kingDangerSquares) == 0;
+        }
+        return board.isBlackKingSideCastle() && (occupied & 0x0000000000000006L) == 0 &&
+                (0x0000000000000006L & kingDangerSquares) == 0;
+    }
+
+    /**
+     * Checks if the king of the color to move can castle on the queen side, see canCastleKingSide. The square next to
+     * the rook has to be empty, but may be attacked.
+     * @param board, the board entity containing the current state
+     * @param color, one of Constants.WHITE/BLACK
+     * @return true if castling queen side is legal
+     */
+    private boolean canCastleQueenSide(Board board, int color) {
+        if (color == Constants.WHITE) {
+            return board.isWhiteQueenSideCastle() && (occupied & 0x7000000000000000L) == 0 &&
+                    (0x3000000000000000L & kingDangerSquares) == 0;
+        }
+        return board.isBlackQueenSideCastle() && (occupied & 0x0000000000000070L) == 0 &&
+                (0x0000000000000030L & kingDangerSquares) == 0;
+    }
+
+    /**
+     * Moves the pawns all at once by shifting the bitboard, and keeps the target squares in the pawn fields
+     * @param pawns, the pawns to move, they should not be pinned
+     * @param color, one of Constants.WHITE/BLACK, the color of the pawns
+     */
+    private void findPawnTargets(long pawns, int color) {
+        long empty = ~occupied;
+        if (color == Constants.WHITE) {
+            pawnPushes = Bitboard.nortOne(pawns) & empty;
+            pawnDoublePushes = Bitboard.nortOne(pawnPushes & Constants.THIRD_RANK) & empty;
+            pawnEastCaptures = Bitboard.noEaOne(pawns) & opponentPieces;
+            pawnWestCaptures = Bitboard.noWeOne(pawns) & opponentPieces;
+        } else {
+            pawnPushes = Bitboard.soutOne(pawns) & empty;
+            pawnDoublePushes = Bitboard.soutOne(pawnPushes & Constants.SIXTH_RANK) & empty;
+            pawnEastCaptures = Bitboard.soEaOne(pawns) & opponentPieces;
+            pawnWestCaptures = Bitboard.soWeOne(pawns) & opponentPieces;
         }
+    }
 
-        return moves;
+    /**
+     * En passent removes two pieces from the rank of the king at once, so the pins do not tell whether it is legal.
+     * It is rare, so check directly if the king would be attacked by a slider after the capture.
+     * @param pawn                   the pawn that captures
+     * @param enPassentSquare        the square the pawn moves to
+     * @param enPassentCaptureSquare the square of the pawn that is captured
+     * @return true if the king is not attacked after the capture
+     */
+    private boolean isEnPassentLegal(long pawn, long enPassentSquare, long enPassentCaptureSquare) {
+        long occupiedAfterCapture = (occupied & ~pawn & ~enPassentCaptureSquare) | enPassentSquare;
+        return (rookAttacks(kingSquare, occupiedAfterCapture) & opponentRookSliders) == 0 &&
+                (bishopAttacks(kingSquare, occupiedAfterCapture) & opponentBishopSliders) == 0;
+    }
+
+    /**
+     * Adds the moves of some kinds that get the king out of check, using the checkers, pins and king danger squares
+     * that findCheckersAndPins found. The king moves to a square the opponent does not attack. In double check that is
+     * all, otherwise the checker can also be captured or blocked.
+     * @param kinds       the kinds of moves to generate, CAPTURES and/or QUIETS
+     * @param numCheckers the amount of pieces that give check, at least 1
+     */
+    private void addEvasions(MoveList moves, Board board, int color, int kinds, int numCheckers) {
+        long targets = ((kinds & CAPTURES) != 0 ? opponentPieces : 0L) | ((kinds & QUIETS) != 0 ? ~occupied : 0L);
+        long kingMoves = Constants.KING_ATTACKS[kingSquare] & targets;
+        addMoves(moves, board, king, kingMoves, opponentPieces, ~kingDangerSquares, Constants.KING, color);
+        if (numCheckers > 1) { // double check, only king moves valid
+            return;
+        }
+        // If the piece giving check is a slider, we can evade check by blocking it. For the other pieces
+        // there are no squares in between, so no push can evade check.
+        long blockSquares = Rays.BETWEEN[kingSquare][Long.numberOfLeadingZeros(checkers)];
+        addCapturesAndBlocks(moves, board, color, kinds, blockSquares);
     }
 
     /**
-     * Returns an iterable to be able to iterate over all the individual pieces in the piece bitboard.
+     * Adds the moves other than king moves that get the king out of a single check: capturing the checker, or moving
+     * in between the checker and the king if it is a slider. Only a few squares resolve the check, so instead of
+     * generating the moves of every piece, this looks from those squares for the pieces that can reach them.
+     * A pinned piece can never capture the checker or block it, as it has to stay on the line of its pinner.
      *
-     * @param p the piece bitboard to get the individual pieces from
-     * @return an iterable
+     * @param kinds          the kinds of moves to generate, CAPTURES and/or QUIETS
+     * @param blockSquares   the squares between a checking slider and the king, 0 if the checker is not a slider
      */
-    private Iterable<Long> getIndividualPieces(long p) {
-        List<Long> pieces = new ArrayList<>();
-        while (p != 0) {
-            pieces.add(Bitboard.leastSignificantBit(p));
-            p = Bitboard.resetLeastSignificantBit(p);
+    private void addCapturesAndBlocks(MoveList moves, Board board, int color, int kinds, long blockSquares) {
+        long movablePieces = ownPieces & ~pinned & ~king;
+        long pawns = bitboards[Constants.PAWN | color] & movablePieces;
+        long knights = bitboards[Constants.KNIGHT | color] & movablePieces;
+        long rookSliders = (bitboards[Constants.ROOK | color] | bitboards[Constants.QUEEN | color]) & movablePieces;
+        long bishopSliders = (bitboards[Constants.BISHOP | color] | bitboards[Constants.QUEEN | color]) & movablePieces;
+        long lastRank = color == Constants.WHITE ? Constants.EIGHTH_RANK : Constants.FIRST_RANK;
+        long doublePushRank = color == Constants.WHITE ? Constants.FOURTH_RANK : Constants.FIFTH_RANK;
+
+        if ((kinds & CAPTURES) != 0) {
+            // capture the checker
+            int checkerSquare = Long.numberOfLeadingZeros(checkers); // 0 indexed
+            long attackers = (Constants.KNIGHT_ATTACKS[checkerSquare] & knights) |
+                    (rookAttacks(checkerSquare, occupied) & rookSliders) |
+                    (bishopAttacks(checkerSquare, occupied) & bishopSliders);
+            addMovesToSquare(moves, board, attackers, checkerSquare + 1, board.getPieceType(checkerSquare + 1), 4);
+
+            // a pawn of this color on a square attacked by a pawn of the opponent on the checker attacks the checker
+            long pawnAttackers = getPawnAttackSquares(checkers, color^1) & pawns;
+            while (pawnAttackers != 0) {
+                long p = Bitboard.leastSignificantBit(pawnAttackers);
+                pawnAttackers = Bitboard.resetLeastSignificantBit(pawnAttackers);
+                addPawnMoves(moves, board, p, checkers, 0xFFFFFFFFFFFFFFFFL, checkers, color, false,
+                        (checkers & lastRank) != 0, false);
+            }
+
+            // en passent, if the checker is the pawn that just made a double push
+            long enPassentSquare = board.getEnPassenSquareBitboard();
+            long enPassentCaptureSquare = color == Constants.WHITE ? Bitboard.soutOne(enPassentSquare) : Bitboard.nortOne(enPassentSquare);
+            if ((enPassentCaptureSquare & checkers) != 0 || (enPassentSquare & blockSquares) != 0) {
+                long enPassentAttackers = getPawnAttackSquares(enPassentSquare, color^1) & pawns;
+                while (enPassentAttackers != 0) {
+                    long p = Bitboard.leastSignificantBit(enPassentAttackers);
+                    enPassentAttackers = Bitboard.resetLeastSignificantBit(enPassentAttackers);
+                    // removing the captured pawn can still open a line to the king
+                    if (isEnPassentLegal(p, enPassentSquare, enPassentCaptureSquare)) {
+                        addPawnMoves(moves, board, p, enPassentSquare, 0xFFFFFFFFFFFFFFFFL, 0L, color,
+                                true, false, false);
+                    }
+                }
+            }
+        }
+
+        // block the checking slider
+        while (blockSquares != 0) {
+            long target = Bitboard.leastSignificantBit(blockSquares);
+            blockSquares = Bitboard.resetLeastSignificantBit(blockSquares);
+            int targetSquare = Long.numberOfLeadingZeros(target); // 0 indexed
+            if ((kinds & QUIETS) != 0) {
+                long blockers = (Constants.KNIGHT_ATTACKS[targetSquare] & knights) |
+                        (rookAttacks(targetSquare, occupied) & rookSliders) |
+                        (bishopAttacks(targetSquare, occupied) & bishopSliders);
+                addMovesToSquare(moves, board, blockers, targetSquare + 1, Constants.EMPTY, 0);
+            }
+
+            // pawn pushes, a push to the last rank is a promotion and counts as a capture
+            boolean promotion = (target & lastRank) != 0;
+            if ((kinds & (promotion ? CAPTURES : QUIETS)) == 0) continue;
+            long pushFrom = color == Constants.WHITE ? Bitboard.soutOne(target) : Bitboard.nortOne(target);
+            if ((pushFrom & pawns) != 0) {
+                addPawnMoves(moves, board, pushFrom, target, 0xFFFFFFFFFFFFFFFFL, 0L, color, false, promotion, false);
+            } else if ((target & doublePushRank) != 0 && (pushFrom & occupied) == 0) {
+                long doublePushFrom = color == Constants.WHITE ? Bitboard.soutOne(pushFrom) : Bitboard.nortOne(pushFrom);
+                if ((doublePushFrom & pawns) != 0) {
+                    addPawnMoves(moves, board, doublePushFrom, target, 0xFFFFFFFFFFFFFFFFL, 0L, color, false, false, true);
+                }
+            }
+        }
+    }
+
+    /**
+     * Counts the evasions of a single check the same way addCapturesAndBlocks finds them, without making the moves
+     * @param blockSquares the squares between a checking slider and the king, 0 if the checker is not a slider
+     * @return the amount of legal moves other than king moves
+     */
+    private int countEvasions(Board board, int color, long blockSquares) {
+        long movablePieces = ownPieces & ~pinned & ~king;
+        long pawns = bitboards[Constants.PAWN | color] & movablePieces;
+        long knights = bitboards[Constants.KNIGHT | color] & movablePieces;
+        long rookSliders = (bitboards[Constants.ROOK | color] | bitboards[Constants.QUEEN | color]) & movablePieces;
+        long bishopSliders = (bitboards[Constants.BISHOP | color] | bitboards[Constants.QUEEN | color]) & movablePieces;
+        long lastRank = color == Constants.WHITE ? Constants.EIGHTH_RANK : Constants.FIRST_RANK;
+        long doublePushRank = color == Constants.WHITE ? Constants.FOURTH_RANK : Constants.FIFTH_RANK;
+
+        int checkerSquare = Long.numberOfLeadingZeros(checkers); // 0 indexed
+        int count = Bitboard.getPopCount((Constants.KNIGHT_ATTACKS[checkerSquare] & knights) |
+                (rookAttacks(checkerSquare, occupied) & rookSliders) |
+                (bishopAttacks(checkerSquare, occupied) & bishopSliders));
+        count += Bitboard.getPopCount(getPawnAttackSquares(checkers, color^1) & pawns) * ((checkers & lastRank) != 0 ? 4 : 1);
+
+        long enPassentSquare = board.getEnPassenSquareBitboard();
+        long enPassentCaptureSquare = color == Constants.WHITE ? Bitboard.soutOne(enPassentSquare) : Bitboard.nortOne(enPassentSquare);
+        if ((enPassentCaptureSquare & checkers) != 0 || (enPassentSquare & blockSquares) != 0) {
+            long enPassentAttackers = getPawnAttackSquares(enPassentSquare, color^1) & pawns;
+            while (enPassentAttackers != 0) {
+                long p = Bitboard.leastSignificantBit(enPassentAttackers);
+                enPassentAttackers = Bitboard.resetLeastSignificantBit(enPassentAttackers);
+                if (isEnPassentLegal(p, enPassentSquare, enPassentCaptureSquare)) count++;
+            }
+        }
+
+        while (blockSquares != 0) {
+            long target = Bitboard.leastSignificantBit(blockSquares);
+            blockSquares = Bitboard.resetLeastSignificantBit(blockSquares);
+            int targetSquare = Long.numberOfLeadingZeros(target); // 0 indexed
+            count += Bitboard.getPopCount((Constants.KNIGHT_ATTACKS[targetSquare] & knights) |
+                    (rookAttacks(targetSquare, occupied) & rookSliders) |
+                    (bishopAttacks(targetSquare, occupied) & bishopSliders));
+
+            long pushFrom = color == Constants.WHITE ? Bitboard.soutOne(target) : Bitboard.nortOne(target);
+            if ((pushFrom & pawns) != 0) {
+                count += (target & lastRank) != 0 ? 4 : 1;
+            } else if ((target & doublePushRank) != 0 && (pushFrom & occupied) == 0) {
+                long doublePushFrom = color == Constants.WHITE ? Bitboard.soutOne(pushFrom) : Bitboard.nortOne(pushFrom);
+                if ((doublePushFrom & pawns) != 0) count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Finds the squares from which every piece type of the color to move would give check, and the pieces that give
+     * a discovered check when they leave their line to the opponent king. After this, givesCheck tells for every
+     * move of the position which check it gives without making it.
+     * @param board, the board entity containing the current state
+     */
+    public void findCheckSquares(Board board) {
+        board.copyBitboards(checkBitboards);
+        checkColor = board.colorToMove();
+        checkOccupied = board.getOccupied();
+        long ownPieces = checkColor == Constants.WHITE ? board.getWhitePieces() : board.getBlackPieces();
+        long opponentKing = checkBitboards[Constants.KING | checkColor^1];
+        opponentKingSquare = Long.numberOfLeadingZeros(opponentKing);
+
+        // a pawn of the opponent on the king would attack the squares our pawns give check from
+        checkSquares[Constants.PAWN] = getPawnAttackSquares(opponentKing, checkColor^1);
+        checkSquares[Constants.KNIGHT] = Constants.KNIGHT_ATTACKS[opponentKingSquare];
+        checkSquares[Constants.BISHOP] = bishopAttacks(opponentKingSquare, checkOccupied);
+        checkSquares[Constants.ROOK] = rookAttacks(opponentKingSquare, checkOccupied);
+        checkSquares[Constants.QUEEN] = checkSquares[Constants.BISHOP] | checkSquares[Constants.ROOK];
+        checkSquares[Constants.KING] = 0L;
+
+        // the own pieces pinned to the opponent king are the ones that uncover a check
+        long rookSliders = checkBitboards[Constants.ROOK | checkColor] | checkBitboards[Constants.QUEEN | checkColor];
+        long bishopSliders = checkBitboards[Constants.BISHOP | checkColor] | checkBitboards[Constants.QUEEN | checkColor];
+        discoverers = findPinnedPieces(opponentKingSquare, ownPieces, checkOccupied, rookSliders, bishopSliders);
+    }
+
+    /**
+     * Tells which check a legal move gives, for the position of the last call to findCheckSquares
+     * @param move the encoded move, see Move
+     * @return NO_CHECK, DIRECT_CHECK, DISCOVERED_CHECK or DOUBLE_CHECK
+     */
+    public int givesCheck(int move) {
+        int flags = Move.getFlags(move);
+        int from = Move.getFrom(move) - 1; // 0 indexed
+        int to = Move.getTo(move) - 1;
+        if (flags == 0 || flags == 1 || flags == 4) { // the moves that only move one piece
+            int check = (checkSquares[Move.getMovingPiece(move) & ~1] & (1L << (63 - to))) != 0 ? DIRECT_CHECK : NO_CHECK;
+            if ((discoverers & (1L << (63 - from))) != 0 && !Rays.aligned(from, opponentKingSquare, to)) {
+                check |= DISCOVERED_CHECK;
+            }
+            return check;
+        }
+        return givesCheckAfterSpecialMove(move, flags, from, to);
+    }
+
+    /**
+     * Tells which check a castling move, en passent capture or promotion gives. They move or remove a second piece,
+     * so the checkers are found again from the opponent king with the pieces as they are after the move. They are
+     * rare, so this does not have to be fast.
+     * @param move  the encoded move
+     * @param flags the flags of the move
+     * @param from  the square the piece moves from, 0 indexed
+     * @param to    the square the piece moves to, 0 indexed
+     * @return NO_CHECK, DIRECT_CHECK, DISCOVERED_CHECK or DOUBLE_CHECK
+     */
+    private int givesCheckAfterSpecialMove(int move, int flags, int from, int to) {
+        long fromBit = 1L << (63 - from);
+        long toBit = 1L << (63 - to);
+        long occupied = (checkOccupied & ~fromBit) | toBit;
+        long rookSliders = checkBitboards[Constants.ROOK | checkColor] | checkBitboards[Constants.QUEEN | checkColor];
+        long bishopSliders = checkBitboards[Constants.BISHOP | checkColor] | checkBitboards[Constants.QUEEN | checkColor];
+        long knights = checkBitboards[Constants.KNIGHT | checkColor];
+        long pawns = checkBitboards[Constants.PAWN | checkColor] & ~fromBit;
+        long moved = toBit; // the square of the piece that can give direct check
+
+        if (Move.isEnPassent(move)) {
+            long capturedPawn = checkColor == Constants.WHITE ? Bitboard.soutOne(toBit) : Bitboard.nortOne(toBit);
+            occupied &= ~capturedPawn;
+            pawns |= toBit;
+        } else if (Move.isPromotion(move)) {
+            int promotion = Move.getPromotionPiece(move) & ~1;
+            if (promotion == Constants.KNIGHT) knights |= toBit;
+            if (promotion == Constants.ROOK || promotion == Constants.QUEEN) rookSliders |= toBit;
+            if (promotion == Constants.BISHOP || promotion == Constants.QUEEN) bishopSliders |= toBit;
+        } else { // castling, the rook can give check from its new square
+            long rookFrom = 1L << (63 - (flags == 2 ? to + 1 : to - 2));
+            long rookTo = 1L << (63 - (flags == 2 ? to - 1 : to + 1));
+            occupied = (occupied & ~rookFrom) | rookTo;
+            rookSliders = (rookSliders & ~rookFrom) | rookTo;
+            moved = rookTo;
+        }
+
+        long checkers = (rookAttacks(opponentKingSquare, occupied) & rookSliders) |
+                (bishopAttacks(opponentKingSquare, occupied) & bishopSliders) |
+                (Constants.KNIGHT_ATTACKS[opponentKingSquare] & knights) |
+                (checkSquares[Constants.PAWN] & pawns);
+        return ((checkers & moved) != 0 ? DIRECT_CHECK : NO_CHECK) |
+                ((checkers & ~moved) != 0 ? DISCOVERED_CHECK : NO_CHECK);
+    }
+
+    /**
+     * Adds a move to one square for every piece in a bitboard
+     *
+     * @param pieces        the pieces that move to the square, of any type
+     * @param toSquare      the square they move to, 1 indexed
+     * @param capturedPiece the piece on the square, Constants.EMPTY if none
+     * @param flags         the flags of the moves, see Move
+     */
+    private void addMovesToSquare(MoveList moves, Board b, long pieces, int toSquare, int capturedPiece, int flags) {
+        while (pieces != 0) {
+            int fromSquare = Long.numberOfLeadingZeros(Bitboard.leastSignificantBit(pieces)) + 1;
+            pieces = Bitboard.resetLeastSignificantBit(pieces);
+            moves.add(Move.encode(fromSquare, toSquare, b.getPieceType(fromSquare), capturedPiece, flags));
+        }
+    }
+
+    /**
+     * Adds the moves of a set of pawns that all moved the same way, so the square they came from is always the same
+     * offset from the square they moved to.
+     *
+     * @param targets the squares the pawns move to
+     * @param offset  the square moved to minus the square moved from, 1 indexed (8 for a white push)
+     * @param color   the color of the pawns
+     * @param flags   the flags of the moves, see Move. For promotions the flags of the knight promotion (8 or 12),
+     *                all four promotions are added
+     */
+    private void addPawnMovesByOffset(MoveList moves, Board b, long targets, int offset, int color, int flags) {
+        int pawn = Constants.PAWN | color;
+        while (targets != 0) {
+            int toSquare = Long.numberOfLeadingZeros(Bitboard.leastSignificantBit(targets)) + 1; // 1 indexed
+            targets = Bitboard.resetLeastSignificantBit(targets);
+            int fromSquare = toSquare - offset;
+            int capturedPiece = b.getPieceType(toSquare);
+            if ((flags & 0b1000) != 0) { // promotions, queen first
+                moves.add(Move.encode(fromSquare, toSquare, pawn, capturedPiece, flags | 3));
+                moves.add(Move.encode(fromSquare, toSquare, pawn, capturedPiece, flags | 2));
+                moves.add(Move.encode(fromSquare, toSquare, pawn, capturedPiece, flags | 1));
+                moves.add(Move.encode(fromSquare, toSquare, pawn, capturedPiece, flags));
+            } else {
+                moves.add(Move.encode(fromSquare, toSquare, pawn, capturedPiece, flags));
+            }
+        }
+    }
+
+    /**
+     * Finds the pieces that are pinned to their king. A piece is pinned if it is the only piece between its king and an
+     * opponent slider on the same line. These are found with an x-ray from the king: the attacks of the king as a
+     * slider with its own first blockers removed show the sliders behind them. A pinned piece can only move on the line
+     * through its king, Rays.LINE.
+     *
+     * @param kingSquare            the square of the king, 0 indexed
+     * @param ownPieces             the pieces of the color of the king
+     * @param occupied              all the occupied squares
+     * @param opponentRookSliders   the opponent rooks and queens
+     * @param opponentBishopSliders the opponent bishops and queens
+     * @return a bitboard of all the pinned pieces
+     */
+    private long findPinnedPieces(int kingSquare, long ownPieces, long occupied, long opponentRookSliders, long opponentBishopSliders) {
+        long pinned = 0L;
+
+        long rookAttacks = rookAttacks(kingSquare, occupied);
+        long rookPinners = rookAttacks(kingSquare, occupied & ~(rookAttacks & ownPieces)) & ~rookAttacks & opponentRookSliders;
+        while (rookPinners != 0) {
+            long pinner = Bitboard.leastSignificantBit(rookPinners);
+            rookPinners = Bitboard.resetLeastSignificantBit(rookPinners);
+            pinned |= Rays.BETWEEN[kingSquare][Long.numberOfLeadingZeros(pinner)] & ownPieces;
+        }
+
+        long bishopAttacks = bishopAttacks(kingSquare, occupied);
+        long bishopPinners = bishopAttacks(kingSquare, occupied & ~(bishopAttacks & ownPieces)) & ~bishopAttacks & opponentBishopSliders;
+        while (bishopPinners != 0) {
+            long pinner = Bitboard.leastSignificantBit(bishopPinners);
+            bishopPinners = Bitboard.resetLeastSignificantBit(bishopPinners);
+            pinned |= Rays.BETWEEN[kingSquare][Long.numberOfLeadingZeros(pinner)] & ownPieces;
         }
-        return pieces;
+        return pinned;
     }
 
     /**
-     * Converts a bitboard of moves to a list of moves. Checks for pins and only converts the legal moves.
+     * Adds the moves in a bitboard of target squares to the move list. Only adds the moves within legalMoves, which
+     * takes care of pins.
      *
+     * @param moves            the list to add the moves to
      * @param piece            a bitboard containing the moving piece
      * @param possibleMoves    a bitboard containing the places this piece can move to
-     * @param legalMoves       a bitboard containing the rays of sliders to the king without the piece contained
-     *                          in piece, also contains the sliders themselves. This is used to calculate pins.
-     *                         In the case the piece we are calculating is the king itself, this variable can be used as
-     *                         ~kingDangerSquares and it will still be correct. If it is 0, it is set to all 1 so that it
-     *                         is ignored.
      * @param opponentPieces   a bitboard containing the opponent pieces to determine captures
+     * @param legalMoves       a bitboard containing the squares this piece can move to without exposing the king.
+     *                         For a pinned piece this is the line through the king and the piece (Rays.LINE),
+     *                         for other pieces all 1. In the case the piece we are calculating is the king itself,
+     *                         this variable can be used as ~kingDangerSquares and it will still be correct.
      * @param pieceType        an integer containing the piecetype (Constants.KING/KNIGHT/etc)
      * @param color            an integer determining the color of the moving piece (Constants.BLACK/WHITE)
-     * @return a list of moves
      */
-    private List<Move> convertBitboardToMoves(Board b, long piece, long possibleMoves, long opponentPieces, long legalMoves, int pieceType, int color) {
-        List<Move> moves = new ArrayList<>();
-        if (legalMoves == 0) legalMoves = 0xffffffffffffffffL; // If legalMoves is 0, ignore it.
+    private void addMoves(MoveList moves, Board b, long piece, long possibleMoves, long opponentPieces, long legalMoves, int pieceType, int color) {
         int fromSquare = Long.numberOfLeadingZeros(piece) + 1;
         long possibleCaptures = possibleMoves & opponentPieces & legalMoves;
         long possibleQuietMoves = possibleMoves & ~opponentPieces & legalMoves;
@@ -258,50 +871,45 @@ public class LegalGenerator {
             int toSquare = Long.numberOfLeadingZeros(Bitboard.leastSignificantBit(possibleCaptures)) + 1;
             possibleCaptures = Bitboard.resetLeastSignificantBit(possibleCaptures);
 
-            moves.add(new Move(fromSquare, toSquare, pieceType | color, b.getPieceType(toSquare), 4)); // 4 because it is a capture
+            moves.add(Move.encode(fromSquare, toSquare, pieceType | color, b.getPieceType(toSquare), 4)); // 4 because it is a capture
         }
         while (possibleQuietMoves != 0) {
             int toSquare = Long.numberOfLeadingZeros(Bitboard.leastSignificantBit(possibleQuietMoves)) + 1;
             possibleQuietMoves = Bitboard.resetLeastSignificantBit(possibleQuietMoves);
 
-            moves.add(new Move(fromSquare, toSquare, pieceType | color, Constants.EMPTY, 0)); // quiet moves
+            moves.add(Move.encode(fromSquare, toSquare, pieceType | color, Constants.EMPTY, 0)); // quiet moves
         }
-        return moves;
     }
 
     /**
-     * Converts a bitboard of moves of a pawn to a list of moves. Checks for pins and only converts the legal moves.
+     * Adds the moves of a pawn in a bitboard of target squares to the move list. Only adds the moves within legalMoves,
+     * which takes care of pins.
      *
+     * @param moves            the list to add the moves to
      * @param piece            a bitboard containing the moving piece
      * @param possibleMoves    a bitboard containing the places this piece can move to
-     * @param legalMoves       a bitboard containing the rays of sliders to the king without the piece contained
-     *                          in piece, also contains the sliders themselves. This is used to calculate pins.
-     *                         In the case the piece we are calculating is the king itself, this variable can be used as
-     *                         ~kingDangerSquares and it will still be correct. If it is 0, it is set to all 1 so that it
-     *                         is ignored.
+     * @param legalMoves       a bitboard containing the squares this pawn can move to without exposing the king,
+     *                         see addMoves
      * @param opponentPieces   a bitboard containing the opponent pieces to determine captures
      * @param color            an integer determining the color of the moving piece (Constants.BLACK/WHITE)
      * @param enPassent        whether this move is en en passent move
      * @param promotion        whether this move is a promotion
      * @param doublePush       whether this move is a double push
-     * @return a list of moves
      */
-    private List<Move> convertPawnBitboardToMoves(Board b, long piece, long possibleMoves, long legalMoves, long opponentPieces, int color, boolean enPassent, boolean promotion, boolean doublePush) {
-        List<Move> moves = new ArrayList<>();
+    private void addPawnMoves(MoveList moves, Board b, long piece, long possibleMoves, long legalMoves, long opponentPieces, int color, boolean enPassent, boolean promotion, boolean doublePush) {
         int fromSquare = Long.numberOfLeadingZeros(piece) + 1; // 1 indexed
-        if (legalMoves == 0) legalMoves = 0xffffffffffffffffL; // If legalMoves is 0, ignore it.
         long possibleCaptures = possibleMoves & opponentPieces & legalMoves;
         long possiblePushes = possibleMoves & ~opponentPieces & legalMoves;
         while (possibleCaptures != 0) {
             int toSquare = Long.numberOfLeadingZeros(Bitboard.leastSignificantBit(possibleCaptures)) + 1; // 1 indexed
             possibleCaptures = Bitboard.resetLeastSignificantBit(possibleCaptures);
             if (promotion) {
-                moves.add(new Move(fromSquare, toSquare, Constants.PAWN | color, b.getPieceType(toSquare), 15)); //queen promo capture
-                moves.add(new Move(fromSquare, toSquare, Constants.PAWN | color, b.getPieceType(toSquare), 14)); //rook promo capture
-                moves.add(new Move(fromSquare, toSquare, Constants.PAWN | color, b.getPieceType(toSquare), 13)); //bishop promo capture
-                moves.add(new Move(fromSquare, toSquare, Constants.PAWN | color, b.getPieceType(toSquare), 12)); //knight promo capture
+                moves.add(Move.encode(fromSquare, toSquare, Constants.PAWN | color, b.getPieceType(toSquare), 15)); //queen promo capture
+                moves.add(Move.encode(fromSquare, toSquare, Constants.PAWN | color, b.getPieceType(toSquare), 14)); //rook promo capture
+                moves.add(Move.encode(fromSquare, toSquare, Constants.PAWN | color, b.getPieceType(toSquare), 13)); //bishop promo capture
+                moves.add(Move.encode(fromSquare, toSquare, Constants.PAWN | color, b.getPieceType(toSquare), 12)); //knight promo capture
             } else { //normal capture, no promotion
-                moves.add(new Move(fromSquare, toSquare, Constants.PAWN | color, b.getPieceType(toSquare), 4));
+                moves.add(Move.encode(fromSquare, toSquare, Constants.PAWN | color, b.getPieceType(toSquare), 4));
             }
         }
         while (possiblePushes != 0) {
@@ -309,20 +917,19 @@ public class LegalGenerator {
             possiblePushes = Bitboard.resetLeastSignificantBit(possiblePushes);
 
             if (promotion) {
-                moves.add(new Move(fromSquare, toSquare, Constants.PAWN | color, b.getPieceType(toSquare), 11)); //queen promo
-                moves.add(new Move(fromSquare, toSquare, Constants.PAWN | color, b.getPieceType(toSquare), 10)); //rook promo
-                moves.add(new Move(fromSquare, toSquare, Constants.PAWN | color, b.getPieceType(toSquare), 9)); //bishop promo
-                moves.add(new Move(fromSquare, toSquare, Constants.PAWN | color, b.getPieceType(toSquare), 8)); //knight promo
+                moves.add(Move.encode(fromSquare, toSquare, Constants.PAWN | color, b.getPieceType(toSquare), 11)); //queen promo
+                moves.add(Move.encode(fromSquare, toSquare, Constants.PAWN | color, b.getPieceType(toSquare), 10)); //rook promo
+                moves.add(Move.encode(fromSquare, toSquare, Constants.PAWN | color, b.getPieceType(toSquare), 9)); //bishop promo
+                moves.add(Move.encode(fromSquare, toSquare, Constants.PAWN | color, b.getPieceType(toSquare), 8)); //knight promo
             } else if (doublePush) {
-                moves.add(new Move(fromSquare, toSquare, Constants.PAWN | color, b.getPieceType(toSquare), 1));
+                moves.add(Move.encode(fromSquare, toSquare, Constants.PAWN | color, b.getPieceType(toSquare), 1));
             } else if (enPassent) { // the move itself is a push, therefore it is not under captures but under possiblePushes
                 int captureSquare = color == Constants.WHITE ? toSquare - 8 : toSquare + 8;
-                moves.add(new Move(fromSquare, toSquare, Constants.PAWN | color, b.getPieceType(captureSquare), 5));
+                moves.add(Move.encode(fromSquare, toSquare, Constants.PAWN | color, b.getPieceType(captureSquare), 5));
             } else {
-                moves.add(new Move(fromSquare, toSquare, Constants.PAWN | color, b.getPieceType(toSquare), 0)); // normal pushes
+                moves.add(Move.encode(fromSquare, toSquare, Constants.PAWN | color, b.getPieceType(toSquare), 0)); // normal pushes
             }
         }
-        return moves;
     }
 
     /**
@@ -335,7 +942,7 @@ public class LegalGenerator {
      */
     public boolean isAttacked(Board b, long targetSquares, int color) {
         long remainingTargetSquares = targetSquares;
-        long[] bitboards = b.getBitboards();
+        b.copyBitboards(bitboards);
         long occupied = b.getOccupied();
         while (remainingTargetSquares != 0) {
             long targetSquare = Bitboard.leastSignificantBit(remainingTargetSquares);
@@ -389,104 +996,22 @@ public class LegalGenerator {
      * @return the squares that are diagonally attacked, including the blocker. Does both diagonals
      */
     private long getDiagonalAttackSquaresIncludingBlocked(long p, long occupied) {
-        return getNormalDiagonalAttackSquaresIncludingBlocked(p, occupied) | getAntiDiagonalAttackSquaresIncludingBlocked(p, occupied);
-    }
-
-    private long getNormalDiagonalAttackSquaresIncludingBlocked(long p, long occupied) {
-        long attacks = 0;
-        while (p != 0) {
-            long slider = Bitboard.leastSignificantBit(p); // Get the next piece (next least significant bit)
-            p = Bitboard.resetLeastSignificantBit(p); // Set that next piece to 0 so we process it only once.
-            int square = Long.numberOfLeadingZeros(slider); // Get the square this piece is on (minus 1,
-            // but the index in the DIAGONAL_MASK array is 0 based anyway, so the arithmatic fits perfectly
-
-            long lineMask = Constants.DIAGONAL_MASK[square]; //first do it in diagonal
-            long forward = occupied & lineMask; // all potential blockers
-            long reverse = Long.reverse(forward); // for the negative rays
-            forward -= 2 * slider; // -2s
-            reverse -= 2 * Long.reverse(slider); // for the negative rays the same
-            // Another xor with o is omitted, because when done in both the positive and negative rays, they cancel each
-            // other out (o^o = 0)
-            forward ^= Long.reverse(reverse); // negative and positive rays xor'ed.
-            attacks |= (forward & lineMask & ~slider); // mask again and add to the attack bitboard, also remove the piece itself
-        }
-        return attacks;
-    }
-
-    private long getAntiDiagonalAttackSquaresIncludingBlocked(long p, long occupied) {
-        long attacks = 0;
-        while (p != 0) {
-            long slider = Bitboard.leastSignificantBit(p); // Get the next piece (next least significant bit)
-            p = Bitboard.resetLeastSignificantBit(p); // Set that next piece to 0 so we process it only once.
-            int square = Long.numberOfLeadingZeros(slider); // Get the square this piece is on (minus 1,
-            // but the index in the DIAGONAL_MASK array is 0 based anyway, so the arithmetic fits perfectly
-
-            long lineMask = Constants.ANTIDIAGONAL_MASK[square];
-            long forward = occupied & lineMask;
-            long reverse = Long.reverse(forward);
-            forward -= 2 * slider;
-            reverse -= 2 * Long.reverse(slider);
-            forward ^= Long.reverse(reverse);
-            attacks |= (forward & lineMask & ~slider);
-        }
-        return attacks;
+        return SLIDER_ATTACKS.bishopAttacksSetwise(p, occupied);
     }
 
     /**
      * Calculates a bitboard of all attacks that are axis aligned. It includes the blocker of both colors.
      * Example of one row:
      * p = 001000, occupied = 011010, result will be 010110
-     * This is calculated using o^(o-2s), where o is occupied and s is the slider
+     * This is calculated by the chosen SliderAttacks implementation, for example using o^(o-2s), where o is occupied
+     * and s is the slider
      *
      * @param p,        a bitboard containing the attacking pieces
      * @param occupied, a bitboard containing the occupied squares
      * @return a bitboard with all attack squares, including the potential blocker.
      */
     private long getAxisAlignedAttackSquaresIncludingBlocked(long p, long occupied) {
-        return getVerticalAttackSquaresIncludingBlocked(p, occupied) | getHorizontalAttackSquaresIncludingBlocked(p, occupied);
-    }
-
-    private long getVerticalAttackSquaresIncludingBlocked(long p, long occupied) {
-        long attacks = 0;
-        while (p != 0) {
-            long slider = Bitboard.leastSignificantBit(p); // Get the next piece (next least significant bit)
-            p = Bitboard.resetLeastSignificantBit(p); // Set that next piece to 0 so we process it only once.
-            int square = Long.numberOfLeadingZeros(slider); // Get the square this piece is on (minus 1,
-            // but the index in the DIAGONAL_MASK array is 0 based anyway, so the arithmatic fits perfectly
-            // file
-            int x = square % 8;
-            long lineMask = Constants.FILE_MASK[x]; //first do it vertical
-            long forward = occupied & lineMask; // all potential blockers
-            long reverse = Long.reverse(forward); // for the negative rays
-            forward -= 2 * slider; // -2s
-            reverse -= 2 * Long.reverse(slider); // for the negative rays the same
-            // Another xor with o is omitted, because when done in both the positive and negative rays, they cancel each
-            // other out (o^o = 0)
-            forward ^= Long.reverse(reverse); // negative and positive rays xor'ed.
-            attacks |= (forward & lineMask & ~slider); // mask again and add to the attack bitboard, also remove the piece itself
-        }
-        return attacks;
-    }
-
-    private long getHorizontalAttackSquaresIncludingBlocked(long p, long occupied) {
-        long attacks = 0;
-        while (p != 0) {
-            long slider = Bitboard.leastSignificantBit(p); // Get the next piece
-            p = Bitboard.resetLeastSignificantBit(p); // Set that next piece to 0 so we process it only once.
-            int square = Long.numberOfLeadingZeros(slider); // Get the square this piece is on (minus 1,
-            // but the index in the lineMask array is 0 based anyway, so the arithmatic fits perfectly
-            // rank
-            // same for horizontal
-            int y = square / 8;
-            long lineMask = Constants.RANK_MASK[y];
-            long forward = occupied & lineMask;
-            long reverse = Long.reverse(forward);
-            forward -= 2 * slider;
-            reverse -= 2 * Long.reverse(slider);
-            forward ^= Long.reverse(reverse);
-            attacks |= (forward & lineMask & ~slider);
-        }
-        return attacks;
+        return SLIDER_ATTACKS.rookAttacksSetwise(p, occupied);
     }
 
     /**
@@ -558,206 +1083,4 @@ public class LegalGenerator {
         return attacked;
     }
 
-    /**
-     * When having a lot of rays, return the ray that this square is on.
-     * @param rays the rays to check
-     * @param square the square to get the corresponding ray from
-     * @return the ray in rays that contains square. 0 if none contains it
-     */
-    private long getIntersectingRay(List<Long> rays, long square) {
-        for (long r : rays) {
-            if ((r & square) != 0) {
-                return r;
-            }
-        }
-        return 0;
-    }
-
-    /**
-     * Combines all the rays that will reach this square into one bitboard. The attackers themselves are included
-     */
-    private long getCombinedSliderRaysToSquare(long square, long bishops, long queens, long rooks, long occupied) {
-        List<Long> rays = getSliderRaysToSquare(square, bishops, queens, rooks, occupied);
-        long total = 0L;
-        for (long r : rays) {
-            total |= r;
-        }
-        return total;
-    }
-
-    /**
-     * Gives a list of all the rays that will reach this square. Attackers themselves included.
-     */
-    private List<Long> getSliderRaysToSquare(long square, long bishops, long queens, long rooks, long occupied) {
-        List<Long> combine = new ArrayList<>();
-        combine.addAll(getDiagonalRayToSquare(square, queens, bishops, occupied));
-        combine.addAll(getAxisAlignedRayToSquare(square, queens, rooks, occupied));
-        return combine;
-    }
-
-    /**
-     * @param square  The square to get the rays to
-     * @param queens  All the opposite queens that could potentially have a ray to this square
-     * @param bishops All opposite bishops that could potentially have a ray to this square
-     * @return an list of bitboards containing all the rays of the queens in @param queens and the bishops in @param bishops
-     * that would attack @param square if no other piece was on the board.
-     */
-    private List<Long> getDiagonalRayToSquare(long square, long queens, long bishops, long occupied) {
-        List<Long> totalRays = new ArrayList<>();
-        long diagRays = getNormalDiagonalAttackSquaresIncludingBlocked(square, occupied);
-        long diagonalAttackers = (getNormalDiagonalAttackSquares(bishops, occupied) | bishops) |
-                (getNormalDiagonalAttackSquares(queens, occupied) | queens); // includes the pieces themselves
-        long diagNormalRayToSquare = diagRays & diagonalAttackers;
-        if (diagNormalRayToSquare != 0) {
-            long[] splittedNormal = Bitboard.splitRay(diagNormalRayToSquare | square, square);
-            totalRays.add(splittedNormal[0]);
-            totalRays.add(splittedNormal[1]);
-        }
-        long antiDiagRays = getAntiDiagonalAttackSquaresIncludingBlocked(square, occupied);
-        long antiDiagonalAttackers = (getAntiDiagonalAttackSquares(bishops, occupied) | bishops) |
-                (getAntiDiagonalAttackSquares(queens, occupied) | queens);
-        long diagAntiRayToSquare = antiDiagRays & antiDiagonalAttackers;
-        if (diagAntiRayToSquare != 0) {
-            long[] splittedAnti = Bitboard.splitRay(diagAntiRayToSquare | square, square);
-            totalRays.add(splittedAnti[0]);
-            totalRays.add(splittedAnti[1]);
-        }
-        return totalRays;
-    }
-
-    /**
-     * @param square The square to get the rays to
-     * @param queens All the opposite queens that could potentially have a ray to this square
-     * @param rooks  All opposite bishops that could potentially have a ray to this square
-     * @return a list of bitboards containing all the rays of the queens in @param queens and the rooks in @param rooks
-     * that would attack @param square if no other piece was on the board.
-     */
-    private List<Long> getAxisAlignedRayToSquare(long square, long queens, long rooks, long occupied) {
-        List<Long> totalRays = new ArrayList<>();
-        long horizontalRays = getHorizontalAttackSquaresIncludingBlocked(square, occupied);
-        long horizontalAttackers = (getHorizontalAttackSquares(rooks, occupied) | rooks) |
-                (getHorizontalAttackSquares(queens, occupied) | queens);
-        long horizontalRaysToSquare = horizontalRays & horizontalAttackers;
-        if (horizontalRaysToSquare != 0) {
-            long[] splittedHorizontal = Bitboard.splitRay(horizontalRaysToSquare | square, square);
-            totalRays.add(splittedHorizontal[0]);
-            totalRays.add(splittedHorizontal[1]);
-        }
-        long verticalRays = getVerticalAttackSquaresIncludingBlocked(square, occupied);
-        long verticalAttackers = (getVerticalAttackSquares(rooks, occupied) | rooks) |
-                (getVerticalAttackSquares(queens, occupied) | queens);
-        long verticalRaysToSquare = verticalRays & verticalAttackers;
-        if (verticalRaysToSquare != 0){
-            long[] splittedVertical = Bitboard.splitRay(verticalRaysToSquare | square, square);
-            totalRays.add(splittedVertical[0]);
-            totalRays.add(splittedVertical[1]);
-        }
-        return totalRays;
-    }
-
-    /**
-     * This method finds all squares that are attacked in an axis alligned way by the pieces in bitboard p
-     *
-     * @param p,        the pieces to find the attack for
-     * @param occupied, a bitboard with the occupied squares
-     * @return a bitboard containing all the squares that are attacked in an axis aligned way, does not include the blocker.
-     */
-    private long getAxisAlignedAttackSquares(long p, long occupied) {
-        return getHorizontalAttackSquares(p, occupied) | getVerticalAttackSquares(p, occupied);
-    }
-
-    private long getHorizontalAttackSquares(long p, long occupied) {
-        long eastAttacks = p;
-        long empty = ~occupied & Constants.NOT_A_FILE; // make A-File all occupied, to consider H-A-wraps after shift
-        eastAttacks |= empty & (eastAttacks >>> 1); // 1. fill
-        eastAttacks |= empty & (eastAttacks >>> 1); // 2. fill
-        eastAttacks |= empty & (eastAttacks >>> 1); // 3. fill
-        eastAttacks |= empty & (eastAttacks >>> 1); // 4. fill
-        eastAttacks |= empty & (eastAttacks >>> 1); // 5. fill
-        eastAttacks |= empty & (eastAttacks >>> 1); // 6. fill
-        eastAttacks |= empty & (eastAttacks >>> 1); // 7. fill
-        long westAttacks = p;
-        empty = ~occupied & Constants.NOT_H_FILE;
-        westAttacks |= empty & (westAttacks << 1);
-        westAttacks |= empty & (westAttacks << 1);
-        westAttacks |= empty & (westAttacks << 1);
-        westAttacks |= empty & (westAttacks << 1);
-        westAttacks |= empty & (westAttacks << 1);
-        westAttacks |= empty & (westAttacks << 1);
-        westAttacks |= empty & (westAttacks << 1);
-        // the pieces are removed at the end
-        return (eastAttacks | westAttacks) & ~p;
-    }
-
-    private long getVerticalAttackSquares(long p, long occupied) {
-        long northAttacks = p;
-        long empty = ~occupied;
-        northAttacks |= empty & (northAttacks >>> 8); // should be unsigned shift, because otherwise the first row could become all 1
-        northAttacks |= empty & (northAttacks >>> 8);
-        northAttacks |= empty & (northAttacks >>> 8);
-        northAttacks |= empty & (northAttacks >>> 8);
-        northAttacks |= empty & (northAttacks >>> 8);
-        northAttacks |= empty & (northAttacks >>> 8);
-        northAttacks |= empty & (northAttacks >>> 8);
-        long southAttacks = p;
-        southAttacks |= empty & (southAttacks << 8);
-        southAttacks |= empty & (southAttacks << 8);
-        southAttacks |= empty & (southAttacks << 8);
-        southAttacks |= empty & (southAttacks << 8);
-        southAttacks |= empty & (southAttacks << 8);
-        southAttacks |= empty & (southAttacks << 8);
-        southAttacks |= empty & (southAttacks << 8);
-        // the pieces are removed at the end
-        return (northAttacks | southAttacks) & ~p;
-    }
-
-    private long getDiagonalAttackSquares(long p, long occupied) {
-        return getNormalDiagonalAttackSquares(p, occupied) | getAntiDiagonalAttackSquares(p, occupied);
-    }
-
-    private long getNormalDiagonalAttackSquares(long p, long occupied) {
-        long empty = ~occupied & Constants.NOT_H_FILE; // make A-File all occupied, to consider H-A-wraps after shift
-        long soEaAttacks = p;
-        soEaAttacks |= empty & (soEaAttacks << 9);
-        soEaAttacks |= empty & (soEaAttacks << 9);
-        soEaAttacks |= empty & (soEaAttacks << 9);
-        soEaAttacks |= empty & (soEaAttacks << 9);
-        soEaAttacks |= empty & (soEaAttacks << 9);
-        soEaAttacks |= empty & (soEaAttacks << 9);
-        soEaAttacks |= empty & (soEaAttacks << 9);
-        long noWeAttacks = p;
-        empty = ~occupied & Constants.NOT_A_FILE;
-        noWeAttacks |= empty & (noWeAttacks >>> 9);
-        noWeAttacks |= empty & (noWeAttacks >>> 9);
-        noWeAttacks |= empty & (noWeAttacks >>> 9);
-        noWeAttacks |= empty & (noWeAttacks >>> 9);
-        noWeAttacks |= empty & (noWeAttacks >>> 9);
-        noWeAttacks |= empty & (noWeAttacks >>> 9);
-        noWeAttacks |= empty & (noWeAttacks >>> 9);
-
-        return (noWeAttacks | soEaAttacks) & ~p;
-    }
-
-    private long getAntiDiagonalAttackSquares(long p, long occupied) {
-        long noEaAttacks = p;
-        long empty = ~occupied & Constants.NOT_H_FILE; // make A-File all occupied, to consider H-A-wraps after shift
-        noEaAttacks |= empty & (noEaAttacks >>> 7);
-        noEaAttacks |= empty & (noEaAttacks >>> 7);
-        noEaAttacks |= empty & (noEaAttacks >>> 7);
-        noEaAttacks |= empty & (noEaAttacks >>> 7);
-        noEaAttacks |= empty & (noEaAttacks >>> 7);
-        noEaAttacks |= empty & (noEaAttacks >>> 7);
-        noEaAttacks |= empty & (noEaAttacks >>> 7);
-        long soWeAttacks = p;
-        empty = ~occupied & Constants.NOT_A_FILE;
-        soWeAttacks |= empty & (soWeAttacks << 7);
-        soWeAttacks |= empty & (soWeAttacks << 7);
-        soWeAttacks |= empty & (soWeAttacks << 7);
-        soWeAttacks |= empty & (soWeAttacks << 7);
-        soWeAttacks |= empty & (soWeAttacks << 7);
-        soWeAttacks |= empty & (soWeAttacks << 7);
-        soWeAttacks |= empty & (soWeAttacks << 7);
-        return (soWeAttacks | noEaAttacks) & ~p;
-    }
-
 }
@@ -0,0 +1,95 @@
+package moveGenerator;
+
+import state.Move;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A reusable list of moves that are stored in their int encoding (see Move). The move generator writes into it,
+ * so generating the moves of a position does not allocate anything once the list exists.
+ */
+public class MoveList {
+    public static final int MAX_MOVES = 256; // no legal position has more than 218 moves
+
+    private final int[] moves;
+    private int size = 0;
+
+    public MoveList() {
+        this.moves = new int[MAX_MOVES];
+    }
+
+    /**
+     * Adds an encoded move to the end of the list
+     * @param move the move, encoded as in Move
+     */
+    public void add(int move) {
+        moves[size++] = move;
+    }
+
+    /**
+     * Gets the encoded move at an index
+     * @param index the index, from 0 to size() - 1
+     * @return the encoded move
+     */
+    public int get(int index) {
+        return moves[index];
+    }
+
+    /**
+     * Replaces the move at an index, used to reorder the moves in place
+     * @param index the index, from 0 to size() - 1
+     * @param move  the encoded move
+     */
+    public void set(int index, int move) {
+        moves[index] = move;
+    }
+
+    /**
+     * Swaps the moves at two indices
+     */
+    public void swap(int i, int j) {
+        int temp = moves[i];
+        moves[i] = moves[j];
+        moves[j] = temp;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes all the moves, the buffer itself is kept
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Checks whether an encoded move is in this list
+     * @param move the encoded move
+     * @return true if it is, false if not
+     */
+    public boolean contains(int move) {
+        for (int i = 0; i < size; i++) {
+            if (moves[i] == move) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Converts the moves to Move objects, for the code that does not need to be fast
+     * @return a new list containing a Move for every move in this list
+     */
+    public List<Move> toList() {
+        List<Move> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(new Move(moves[i]));
+        }
+        return list;
+    }
+}
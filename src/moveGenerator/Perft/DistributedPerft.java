@@ -0,0 +1,244 @@
+package moveGenerator.Perft;
+
+import moveGenerator.MoveList;
+import state.Board;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Counts the perft nodes of a position with worker processes, see PerftWorker. The tree is split at a ply into work
+ * units: the positions at that ply with the depth that is left. A position that is reached by several move orders is
+ * one unit, counted once and multiplied. Every worker gets a thread in the coordinator that hands it one unit at a
+ * time over a socket. When a worker dies or hangs, the unit it was counting goes back in the queue for the other
+ * workers.
+ */
+public class DistributedPerft {
+    private static final int CONNECT_TIMEOUT = 10_000; // milliseconds
+
+    private final List<InetSocketAddress> workers = new ArrayList<>();
+    private final List<Process> spawned = new ArrayList<>(); // the local workers this coordinator started
+    private final int unitDepth;
+    private final int unitTimeout; // milliseconds
+
+    /**
+     * One position to count, with the amount of times it is reached at the ply of the split
+     */
+    private static class WorkUnit {
+        private final String fen;
+        private final int depth;
+        private long transpositions = 0;
+        private volatile long nodes = -1;
+
+        WorkUnit(String fen, int depth) {
+            this.fen = fen;
+            this.depth = depth;
+        }
+    }
+
+    /**
+     * @param workers     the addresses of the workers that are already running, can be empty if they are spawned
+     * @param unitDepth   the ply the tree is split at into work units, 2 or 3
+     * @param unitTimeout the seconds a worker gets to count one unit, after that it counts as dead
+     */
+    public DistributedPerft(List<InetSocketAddress> workers, int unitDepth, int unitTimeout) {
+        this.workers.addAll(workers);
+        this.unitDepth = unitDepth;
+        this.unitTimeout = (int) Math.min(unitTimeout * 1000L, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Reads a list of worker addresses
+     * @param list the addresses like host1:port1,host2:port2
+     * @return the addresses
+     * @throws IllegalArgumentException if an address has no port
+     */
+    public static List<InetSocketAddress> parseWorkers(String list) {
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        for (String address : list.split(",")) {
+            int colon = address.lastIndexOf(':');
+            if (colon < 0) {
+                throw new IllegalArgumentException("A worker should be host:port, not " + address);
+            }
+            addresses.add(new InetSocketAddress(address.substring(0, colon).trim(),
+                    Integer.parseInt(address.substring(colon + 1).trim())));
+        }
+        return addresses;
+    }
+
+    /**
+     * Starts worker processes on this machine with the same java and class path, and adds them to the workers
+     * @param amount        the amount of processes
+     * @param hashMegabytes the size of the hash table of every worker, 0 for none
+     * @throws IOException if a process can not be started or does not say which port it listens on
+     */
+    public void spawnLocalWorkers(int amount, int hashMegabytes) throws IOException {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        for (int i = 0; i < amount; i++) {
+            List<String> command = new ArrayList<>(List.of(java, "-cp", System.getProperty("java.class.path"),
+                    Perft.class.getName(), "--serve", "0"));
+            if (hashMegabytes > 0) {
+                command.addAll(List.of("--hash-mb", Integer.toString(hashMegabytes)));
+            }
+            Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+            spawned.add(process);
+            BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+            String line;
+            while ((line = out.readLine()) != null && !line.startsWith(PerftWorker.LISTENING)) {
+                // skip what the jvm prints before
+            }
+            if (line == null) {
+                throw new IOException("Worker process " + i + " stopped before it listened");
+            }
+            workers.add(new InetSocketAddress("localhost", Integer.parseInt(line.substring(PerftWorker.LISTENING.length()))));
+        }
+    }
+
+    /**
+     * Stops the worker processes this coordinator started
+     */
+    public void shutdown() {
+        for (Process process : spawned) {
+            process.destroy();
+        }
+    }
+
+    /**
+     * Counts the leaf nodes at a depth from a position with the workers
+     * @param b     the position, it is not changed
+     * @param depth the depth, at least 1
+     * @return the amount of leaf nodes
+     * @throws IllegalStateException if all workers died before every unit was counted, or a worker could not count
+     *                               a unit
+     */
+    public long perft(Board b, int depth) {
+        if (workers.isEmpty()) {
+            throw new IllegalStateException("There are no workers to count with");
+        }
+        // leave at least one ply for the workers
+        int splitPly = Math.min(unitDepth, depth - 1);
+        Map<String, WorkUnit> units = new LinkedHashMap<>();
+        split(b.copy(), splitPly, depth, units);
+        System.out.println("Work units: " + units.size() + " at ply " + splitPly + ", workers: " + workers.size());
+
+        BlockingQueue<WorkUnit> queue = new LinkedBlockingQueue<>(units.values());
+        AtomicInteger remaining = new AtomicInteger(units.size());
+        AtomicInteger alive = new AtomicInteger(workers.size());
+        AtomicReference<String> failure = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for (InetSocketAddress worker : workers) {
+            Thread thread = new Thread(() -> work(worker, queue, remaining, alive, failure), "perft-coordinator-" + worker);
+            thread.setDaemon(true);
+            thread.start();
+            threads.add(thread);
+        }
+        try {
+            while (remaining.get() > 0 && failure.get() == null) {
+                if (alive.get() == 0) {
+                    throw new IllegalStateException("All workers died with " + remaining.get() + " units left");
+                }
+                Thread.sleep(50);
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            throw new IllegalStateException("Waiting for the workers was interrupted", e);
+        }
+        if (failure.get() != null) {
+            throw new IllegalStateException(failure.get());
+        }
+
+        long nodes = 0;
+        for (WorkUnit unit : units.values()) {
+            nodes += unit.nodes * unit.transpositions;
+        }
+        return nodes;
+    }
+
+    /**
+     * Walks the tree to the ply of the split and collects the positions there
+     * @param b     the position, it is changed during the walk but restored at the end
+     * @param plies the plies left until the split
+     * @param depth the depth left
+     * @param units the work units by position, without the move counts as they do not change the node count
+     */
+    private void split(Board b, int plies, int depth, Map<String, WorkUnit> units) {
+        if (plies == 0) {
+            units.computeIfAbsent(b.FENwithoutMoveCount(), fen -> new WorkUnit(b.toString(), depth)).transpositions++;
+            return;
+        }
+        MoveList moves = b.getMoveList();
+        for (int i = 0; i < moves.size(); i++) {
+            int m = moves.get(i);
+            b.makeMove(m);
+            split(b, plies - 1, depth - 1, units);
+            b.unMakeMove(m);
+        }
+    }
+
+    /**
+     * Hands the units to one worker one at a time until all of them are counted. If the connection breaks, the worker
+     * does not answer a unit within the timeout or its answer is not a number, the unit goes back in the queue for the
+     * other workers and this worker is not used again.
+     */
+    private void work(InetSocketAddress worker, BlockingQueue<WorkUnit> queue, AtomicInteger remaining,
+                      AtomicInteger alive, AtomicReference<String> failure) {
+        try (Socket socket = new Socket()) {
+            socket.connect(worker, CONNECT_TIMEOUT);
+            socket.setKeepAlive(true);
+            socket.setSoTimeout(unitTimeout);
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+            while (remaining.get() > 0 && failure.get() == null) {
+                WorkUnit unit = queue.poll(50, TimeUnit.MILLISECONDS);
+                if (unit == null) {
+                    continue; // the last units are still being counted, one of them may come back
+                }
+                String answer;
+                long nodes;
+                try {
+                    out.println(unit.fen + ";" + unit.depth);
+                    if (out.checkError() || (answer = in.readLine()) == null) {
+                        throw new IOException("the connection was closed");
+                    }
+                    if (answer.startsWith("error")) {
+                        failure.set("Worker " + worker + " could not count " + unit.fen + ": " + answer);
+                        return;
+                    }
+                    try {
+                        nodes = Long.parseLong(answer);
+                    } catch (NumberFormatException e) {
+                        throw new IOException("it answered " + answer);
+                    }
+                } catch (IOException e) { // also a SocketTimeoutException when the worker hangs
+                    queue.add(unit);
+                    throw e;
+                }
+                unit.nodes = nodes;
+                remaining.decrementAndGet();
+            }
+        } catch (IOException e) {
+            System.out.println("Worker " + worker + " died (" + e.getMessage() + "), its unit is counted again");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            alive.decrementAndGet();
+        }
+    }
+}
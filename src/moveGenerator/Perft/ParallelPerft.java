@@ -0,0 +1,98 @@
+package moveGenerator.Perft;
+
+import moveGenerator.LegalGenerator;
+import moveGenerator.MoveList;
+import state.Board;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Counts the perft nodes with several threads. The moves of the root (and optionally of the second ply) are split
+ * into tasks on a ForkJoinPool. Every task works on its own copy of the board, which has its own LegalGenerator,
+ * so the tasks share nothing but the optional hash table (which is safe without locks) and the sum is exactly the
+ * serial count.
+ */
+public class ParallelPerft {
+    private final ForkJoinPool pool;
+    private final int splitDepth;
+    private final PerftHashTable table; // shared by all the tasks, null if not used
+
+    /**
+     * @param threads    the amount of threads in the pool
+     * @param splitDepth the amount of plies that are split into tasks, 1 splits only the root
+     */
+    public ParallelPerft(int threads, int splitDepth) {
+        this(threads, splitDepth, null);
+    }
+
+    /**
+     * @param threads    the amount of threads in the pool
+     * @param splitDepth the amount of plies that are split into tasks, 1 splits only the root
+     * @param table      a hash table with node counts that all threads share, null to count every node
+     */
+    public ParallelPerft(int threads, int splitDepth, PerftHashTable table) {
+        this.pool = new ForkJoinPool(threads);
+        this.splitDepth = splitDepth;
+        this.table = table;
+    }
+
+    /**
+     * Counts the leaf nodes at a depth from a position
+     * @param b     the position, it is not changed
+     * @param depth the depth, at least 1
+     * @return the amount of leaf nodes
+     */
+    public long perft(Board b, int depth) {
+        return pool.invoke(new PerftTask(b.copy(), depth, splitDepth, table));
+    }
+
+    public int getThreads() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * Stops the threads of the pool
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    private static class PerftTask extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+
+        private final Board board; // owned by this task only
+        private final int depth;
+        private final int splitDepth; // the amount of plies that are still split into tasks
+        private final PerftHashTable table;
+
+        PerftTask(Board board, int depth, int splitDepth, PerftHashTable table) {
+            this.board = board;
+            this.depth = depth;
+            this.splitDepth = splitDepth;
+            this.table = table;
+        }
+
+        @Override
+        protected Long compute() {
+            if (splitDepth == 0 || depth <= 1) {
+                LegalGenerator generator = new LegalGenerator(); // counts the last ply, one per task like the board
+                return table != null ? Perft.perft(board, generator, depth, table) : Perft.perft(board, generator, depth);
+            }
+            MoveList moves = board.getMoveList();
+            List<PerftTask> tasks = new ArrayList<>(moves.size());
+            for (int i = 0; i < moves.size(); i++) {
+                Board child = board.copy();
+                child.makeMove(moves.get(i));
+                tasks.add(new PerftTask(child, depth - 1, splitDepth - 1, table));
+            }
+            long nodes = 0;
+            for (PerftTask task : invokeAll(tasks)) {
+                nodes += task.join();
+            }
+            return nodes;
+        }
+    }
+}
@@ -1,123 +1,463 @@
 package moveGenerator.Perft;
 
 import moveGenerator.LegalGenerator;
+import moveGenerator.MoveList;
 import state.Board;
-import state.Move;
 
+import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.PrintStream;
+import java.net.URL;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
 
 /**
  * A performance evaluator for the generator
  */
 public class Perft {
 
-    static int divideDepth = 6;
-
-    private static long divide(Board b, LegalGenerator g, int depth) {
-        List<Move> possibleMoves = b.getMoves();
-        long nodes = 0; // the amount of nodes
-
+    /**
+     * Counts the leaf nodes at a depth from a position, on one thread. The moves of the last ply are only counted,
+     * not generated.
+     * @param b     the position, it is changed during the count but restored at the end
+     * @param g     the generator that counts the moves of the last ply, only used by this thread
+     * @param depth the depth, at least 1
+     * @return the amount of leaf nodes
+     */
+    static long perft(Board b, LegalGenerator g, int depth) {
         if (depth == 1) {
-            nodes = possibleMoves.size();
-            if (divideDepth == 2) {
-                System.out.print(b.moves.peek() + " ");
-                System.out.println(nodes);
-            }
-            return nodes; // base case
+            return g.countLegalMoves(b); // base case
         }
 
-        for (Move m : possibleMoves) {
+        long nodes = 0; // the amount of nodes
+        MoveList possibleMoves = b.getMoveList();
+        for (int i = 0; i < possibleMoves.size(); i++) {
+            int m = possibleMoves.get(i);
             b.makeMove(m);
-            nodes += divide(b, g, depth - 1);
+            nodes += perft(b, g, depth - 1);
             b.unMakeMove(m);
         }
-        if (depth == divideDepth - 1) {
-            System.out.print(b.moves.peek() + " ");
-            System.out.println(nodes);
-        }
         return nodes;
     }
 
-
-    private static long perft(Board b, LegalGenerator g, int depth) {
-        List<Move> possibleMoves = b.getMoves();
-        long nodes = 0; // the amount of nodes
-
+    /**
+     * Counts the leaf nodes at a depth from a position, on one thread. The counts of the positions are remembered in
+     * a hash table, so positions that are reached again through a transposition are only counted once.
+     * @param b     the position, it is changed during the count but restored at the end
+     * @param g     the generator that counts the moves of the last ply, only used by this thread
+     * @param depth the depth, at least 1
+     * @param table the table with the node counts of the positions that were already counted
+     * @return the amount of leaf nodes
+     */
+    static long perft(Board b, LegalGenerator g, int depth, PerftHashTable table) {
         if (depth == 1) {
-            nodes = possibleMoves.size();
-            return nodes; // base case
+            return g.countLegalMoves(b); // base case, cheaper than a lookup
         }
 
-        for (Move m : possibleMoves) {
+        long key = b.getHashKey();
+        long nodes = table.probe(key, depth);
+        if (nodes >= 0) {
+            return nodes;
+        }
+
+        nodes = 0;
+        MoveList possibleMoves = b.getMoveList();
+        for (int i = 0; i < possibleMoves.size(); i++) {
+            int m = possibleMoves.get(i);
             b.makeMove(m);
-            nodes += perft(b, g, depth - 1);
+            nodes += perft(b, g, depth - 1, table);
             b.unMakeMove(m);
         }
+        table.store(key, depth, nodes);
         return nodes;
     }
 
-    public static void readPerftSuite() {
-        long totalStart = System.currentTimeMillis();
-        Scanner s = null;
-        try {
-            s = new Scanner((new Perft()).getClass().getClassLoader().getResource("perft/perftsuite.txt").openStream());
-        } catch (IOException | NullPointerException e) {
-            e.printStackTrace();
-            System.exit(0); // stop if the file is not found
+    /**
+     * Reads the positions of the perft suite
+     * @param depthLimit the largest depth to run, the deeper lines are left out
+     * @param filter     a regular expression, only the positions with a fen it is found in are read. null for all
+     * @return a record for every position and depth, in the order of the suite file
+     * @throws IOException if the suite file is not on the class path or can not be read
+     */
+    static List<PerftRecord> readSuite(int depthLimit, String filter) throws IOException {
+        URL suiteFile = Perft.class.getClassLoader().getResource("perft/perftsuite.txt");
+        if (suiteFile == null) {
+            throw new FileNotFoundException("perft/perftsuite.txt is not on the class path");
         }
+        Scanner s = new Scanner(suiteFile.openStream());
+        Pattern pattern = filter != null ? Pattern.compile(filter) : null;
 
-        boolean allCorrect = true;
-
-        LegalGenerator g = new LegalGenerator();
-
+        List<PerftRecord> suite = new ArrayList<>();
         while (s.hasNextLine()) {
             String nextLine = s.nextLine();
-            if (nextLine.trim().equals("") || nextLine.substring(0, 2).trim().equals("//")) { // if it starts with //, skip this line
+            if (nextLine.trim().equals("") || nextLine.trim().startsWith("//")) { // if it starts with //, skip this line
                 continue;
             }
             String[] parts = nextLine.split(";");
-            for (String p : parts) {
-                p = p.trim(); // trim the spaces
+            String fen = parts[0].trim(); // the first part is always the fen
+            if (pattern != null && !pattern.matcher(fen).find()) {
+                continue;
             }
-
-            Board b = new Board(parts[0]); // the first part is always the fen
             for (int i = 1; i < parts.length; i++) {
                 String current = parts[i].trim();
                 int depth = Integer.parseInt(current.split(" ")[0].substring(1, 2));
-
                 long expectedNodeCount = Long.parseLong(current.split(" ")[1]);
+                if (depth <= depthLimit) {
+                    suite.add(new PerftRecord(fen, depth, expectedNodeCount));
+                }
+            }
+        }
+        s.close();
+        return suite;
+    }
+
+    /**
+     * Runs every position in the perft suite and checks the node counts
+     * @param threads    the amount of threads, 1 for the serial perft
+     * @param splitDepth the amount of plies that are split into parallel tasks when there are more threads
+     * @param table      the hash table with node counts, null to count every node
+     * @return the total amount of nodes and the total time spent counting them in nanoseconds
+     * @throws IOException if the suite file is not on the class path or can not be read
+     */
+    public static long[] readPerftSuite(int threads, int splitDepth, PerftHashTable table) throws IOException {
+        return totals(runSuite(readSuite(Integer.MAX_VALUE, null), threads, splitDepth, 1, table,
+                PerftOptions.Format.TEXT));
+    }
 
-                long start = System.currentTimeMillis();
-                long actualNodeCount = 0;
+    /**
+     * Counts the nodes of every record of a suite and prints the results
+     * @param suite      the records to count, their results are filled in
+     * @param threads    the amount of threads that count one position, 1 for the serial perft
+     * @param splitDepth the amount of plies that are split into parallel tasks when there are more threads
+     * @param jobs       the amount of positions that are counted at the same time
+     * @param table      the hash table with node counts, null to count every node
+     * @param format     how to print the records. For CSV and JSON only the records go to stdout and the summary
+     *                   to stderr, so the output can be redirected to a file
+     * @return the records of the suite
+     */
+    static List<PerftRecord> runSuite(List<PerftRecord> suite, int threads, int splitDepth, int jobs,
+                                      PerftHashTable table, PerftOptions.Format format) {
+        long totalStart = System.nanoTime();
+        PrintStream log = format == PerftOptions.Format.TEXT ? System.out : System.err;
+        log.println("Slider attacks: " + LegalGenerator.getSliderAttacks() + ", threads: " + threads +
+                (jobs > 1 ? ", jobs: " + jobs : "") + (table != null ? ", hash table: " + table.size() + " entries" : ""));
+        if (format == PerftOptions.Format.CSV) {
+            System.out.println(PerftRecord.CSV_HEADER);
+        }
+
+        for (PerftRecord record : suite) {
+            record.setSettings(jobs, threads, splitDepth, table != null ? table.size() : 0);
+        }
+        ParallelPerft parallelPerft = threads > 1 ? new ParallelPerft(threads, splitDepth, table) : null;
+        if (jobs == 1) {
+            for (PerftRecord record : suite) {
+                count(record, parallelPerft, table, log);
+                System.out.println(format(record, format));
+            }
+        } else {
+            // Start with the largest counts, so a long line does not run on alone at the end. The records are
+            // printed in the order of the suite as soon as they and all the records before them are done.
+            ExecutorService executor = Executors.newFixedThreadPool(jobs);
+            List<PerftRecord> largestFirst = new ArrayList<>(suite);
+            largestFirst.sort(Comparator.comparingLong(PerftRecord::getExpectedNodes).reversed());
+            Map<PerftRecord, Future<?>> counts = new IdentityHashMap<>();
+            for (PerftRecord record : largestFirst) {
+                counts.put(record, executor.submit(() -> count(record, parallelPerft, table, log)));
+            }
+            for (PerftRecord record : suite) {
                 try {
-                    actualNodeCount = perft(b, g, depth);
-                } catch (Exception e) {
-                    System.out.println(parts[0] + " D" + depth + " expected: " + expectedNodeCount + " failed");
-                    Arrays.stream(e.getStackTrace()).forEach(System.out::println);
-                    continue;
+                    counts.get(record).get();
+                } catch (InterruptedException | ExecutionException e) {
+                    throw new IllegalStateException("Counting " + record.getKey() + " was interrupted", e);
                 }
-                long duration = System.currentTimeMillis() - start;
+                System.out.println(format(record, format));
+            }
+            executor.shutdown();
+        }
+        if (parallelPerft != null) {
+            parallelPerft.shutdown();
+        }
+        long wallNanos = System.nanoTime() - totalStart;
 
-                if (expectedNodeCount != actualNodeCount) { // if the value is not correct
-                    allCorrect = false;
-                    System.out.println(parts[0] + " D" + depth + " expected: " + expectedNodeCount + " actual: " + actualNodeCount);
-                } else {
-                    System.out.println(parts[0] + " D" + depth + " done in " + duration + " miliseconds");
-                }
+        if (suite.stream().allMatch(PerftRecord::isCorrect)) {
+            log.println("all correct");
+        }
+        long[] totals = totals(suite);
+        log.println("Total time: " + wallNanos / 1_000_000);
+        log.println("Nodes: " + totals[0] + ", nps: " + nodesPerSecond(totals[0], totals[1]));
+        if (jobs > 1) { // the lines overlap, so the time of all of them together is less than their sum
+            log.println("Aggregate nps over the total time: " + nodesPerSecond(totals[0], wallNanos));
+        }
+        if (table != null) {
+            log.printf("Hash table hits: %d of %d lookups (%.1f%%)%n", table.getHits(), table.getProbes(),
+                    table.getHitRate() * 100);
+        }
+        return suite;
+    }
+
+    /**
+     * Counts the nodes of one record and stores the result in it. Safe to call from several threads at once, as
+     * every call has its own board and generator.
+     * @param record        the position and depth to count
+     * @param parallelPerft the parallel perft to count with, null for the serial perft
+     * @param table         the hash table with node counts, null to count every node
+     * @param log           where to print the stack trace if counting fails
+     */
+    private static void count(PerftRecord record, ParallelPerft parallelPerft, PerftHashTable table, PrintStream log) {
+        Board b = new Board(record.getFen());
+        LegalGenerator generator = new LegalGenerator();
+        int depth = record.getDepth();
+        long start = System.nanoTime();
+        try {
+            long actualNodeCount;
+            if (parallelPerft != null) {
+                actualNodeCount = parallelPerft.perft(b, depth);
+            } else if (table != null) {
+                actualNodeCount = perft(b, generator, depth, table);
+            } else {
+                actualNodeCount = perft(b, generator, depth);
             }
+            record.setResult(actualNodeCount, System.nanoTime() - start);
+        } catch (Exception e) {
+            record.setResult(-1, System.nanoTime() - start);
+            Arrays.stream(e.getStackTrace()).forEach(log::println);
+        }
+    }
+
+    private static String format(PerftRecord record, PerftOptions.Format format) {
+        switch (format) {
+            case CSV:
+                return record.toCsv();
+            case JSON:
+                return record.toJson();
+            default:
+                return record.toText();
+        }
+    }
+
+    /**
+     * Adds up the results of the records that were counted
+     * @param records the records
+     * @return the total amount of nodes and the total time spent counting them in nanoseconds
+     */
+    private static long[] totals(List<PerftRecord> records) {
+        long totalNodes = 0;
+        long totalNanos = 0;
+        for (PerftRecord record : records) {
+            totalNodes += Math.max(record.getActualNodes(), 0);
+            totalNanos += record.getNanos();
+        }
+        return new long[]{totalNodes, totalNanos};
+    }
+
+    /**
+     * Runs the perft suite with 1, 2, 4 ... threads up to maxThreads and prints how the speed scales
+     * @param suite      the records to count
+     * @param maxThreads the largest amount of threads, always included even if it is not a power of 2
+     * @param splitDepth the amount of plies that are split into parallel tasks
+     */
+    static void measureScaling(List<PerftRecord> suite, int maxThreads, int splitDepth) {
+        List<long[]> results = new ArrayList<>();
+        List<Integer> threadCounts = new ArrayList<>();
+        for (int threads = 1; threads < maxThreads; threads *= 2) {
+            threadCounts.add(threads);
+        }
+        threadCounts.add(maxThreads);
+        for (int threads : threadCounts) {
+            results.add(totals(runSuite(suite, threads, splitDepth, 1, null, PerftOptions.Format.TEXT)));
+        }
+
+        System.out.println("Threads  nps  speedup");
+        long serialNps = nodesPerSecond(results.get(0)[0], results.get(0)[1]);
+        for (int i = 0; i < threadCounts.size(); i++) {
+            long nps = nodesPerSecond(results.get(i)[0], results.get(i)[1]);
+            System.out.printf("%d  %d  %.2f%n", threadCounts.get(i), nps, (double) nps / serialNps);
+        }
+    }
+
+    static long nodesPerSecond(long nodes, long nanos) {
+        return nanos == 0 ? 0 : nodes * 1_000_000_000L / nanos;
+    }
+
+    /**
+     * Runs the perft suite without and with a hash table and prints how much faster the hashed perft is
+     * @param suite      the records to count
+     * @param threads    the amount of threads
+     * @param splitDepth the amount of plies that are split into parallel tasks
+     * @param jobs       the amount of positions that are counted at the same time
+     * @param megabytes  the size of the hash table
+     */
+    static void compareHashed(List<PerftRecord> suite, int threads, int splitDepth, int jobs, int megabytes) {
+        long[] plain = totals(runSuite(suite, threads, splitDepth, jobs, null, PerftOptions.Format.TEXT));
+        long[] hashed = totals(runSuite(suite, threads, splitDepth, jobs, new PerftHashTable(megabytes),
+                PerftOptions.Format.TEXT));
+        System.out.printf("Without hash table: %d ms, with hash table: %d ms, speedup: %.2f%n", plain[1] / 1_000_000,
+                hashed[1] / 1_000_000, (double) plain[1] / hashed[1]);
+    }
+
+    /**
+     * Counts the statistics of every record of a suite and prints a table for every record
+     * @param suite   the records to count, their results are filled in
+     * @param threads the amount of threads that count one position
+     */
+    static void runStatistics(List<PerftRecord> suite, int threads) {
+        long totalStart = System.nanoTime();
+        for (PerftRecord record : suite) {
+            long start = System.nanoTime();
+            PerftStatistics statistics = PerftStatistics.count(new Board(record.getFen()), record.getDepth(), threads);
+            record.setResult(statistics.getNodes(), System.nanoTime() - start);
+            System.out.println(record.toText());
+            statistics.print(System.out);
         }
-        if (allCorrect) {
+        if (suite.stream().allMatch(PerftRecord::isCorrect)) {
             System.out.println("all correct");
         }
-        long totalDuration = System.currentTimeMillis() - totalStart;
-        System.out.println("Total time: " + totalDuration);
+        long[] totals = totals(suite);
+        System.out.println("Total time: " + (System.nanoTime() - totalStart) / 1_000_000);
+        System.out.println("Nodes: " + totals[0] + ", nps: " + nodesPerSecond(totals[0], totals[1]));
     }
 
-    public static void main(String[] a) {
-        readPerftSuite();
+    /**
+     * Counts the nodes and the distinct positions of every depth of the --fen position
+     * @param options the options with the position, the depth and the size of the position set
+     */
+    private static void countUnique(PerftOptions options) {
+        Board b = new Board(options.fen);
+        long start = System.nanoTime();
+        UniquePerft uniquePerft = new UniquePerft(options.depth, options.uniqueSize);
+        uniquePerft.count(b, options.depth);
+        long uniqueNanos = System.nanoTime() - start;
+        long[] nodes = new long[options.depth + 1];
+        PerftHashTable table = options.hashMegabytes > 0 ? new PerftHashTable(options.hashMegabytes) : null;
+        ParallelPerft parallelPerft = new ParallelPerft(options.threads, options.splitDepth, table);
+        try {
+            for (int depth = 1; depth <= options.depth; depth++) {
+                nodes[depth] = parallelPerft.perft(b, depth);
+            }
+        } finally {
+            parallelPerft.shutdown();
+        }
+        uniquePerft.print(System.out, nodes);
+        System.out.println("Unique time: " + uniqueNanos / 1_000_000 + ", total time: " +
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Counts the nodes of the --fen position, with the workers if there are any and otherwise on this process
+     * @param options the options with the position and the depth
+     * @throws IOException if the worker processes can not be started
+     */
+    private static void countPosition(PerftOptions options) throws IOException {
+        Board b = new Board(options.fen);
+        long start = System.nanoTime();
+        long nodes;
+        if (options.workers != null || options.spawn > 0) {
+            DistributedPerft distributedPerft = new DistributedPerft(options.workers != null ?
+                    DistributedPerft.parseWorkers(options.workers) : List.of(), options.unitDepth,
+                    options.unitTimeout);
+            try {
+                distributedPerft.spawnLocalWorkers(options.spawn, options.hashMegabytes);
+                nodes = distributedPerft.perft(b, options.depth);
+            } finally {
+                distributedPerft.shutdown();
+            }
+        } else {
+            PerftHashTable table = options.hashMegabytes > 0 ? new PerftHashTable(options.hashMegabytes) : null;
+            ParallelPerft parallelPerft = new ParallelPerft(options.threads, options.splitDepth, table);
+            try {
+                nodes = parallelPerft.perft(b, options.depth);
+            } finally {
+                parallelPerft.shutdown();
+            }
+        }
+        long nanos = System.nanoTime() - start;
+        System.out.println("Nodes: " + nodes + ", time: " + nanos / 1_000_000 + ", nps: " + nodesPerSecond(nodes, nanos));
+    }
+
+    /**
+     * Runs the perft suite. Options:
+     * --threads n          count with n threads (default 1)
+     * --split-depth d      split the first d plies into parallel tasks, 1 or 2 (default 1)
+     * --scaling            run the suite with 1, 2, 4 ... up to --threads threads and print the speedup
+     * --jobs n             count n positions at the same time, the largest first (default 1)
+     * --hash-mb n          remember the node counts in a hash table of n megabytes
+     * --compare            run the suite without and with the hash table and print the speedup
+     * --format f           print a record per position and depth as text, csv or json (default text)
+     * --baseline file      compare the nodes per second with a file written earlier with --format csv
+     * --max-regression p   the largest drop in nodes per second compared to the baseline, in percent (default 5)
+     * --depth-limit d      leave out the depths above d
+     * --filter regex       only run the positions with a fen the regular expression is found in
+     * --divide fen         count the nodes below every move of a position separately, needs --depth
+     * --depth d            the depth of --divide and --fen
+     * --checkpoint file    write every finished root move of --divide to a file
+     * --resume             skip the root moves that are already in the --checkpoint file
+     * --fen fen            count the nodes of one position, needs --depth
+     * --workers host:port,...  count --fen with worker processes that were started with --serve
+     * --spawn n            count --fen with n worker processes started on this machine
+     * --unit-depth d       split --fen into work units for the workers at ply d, 2 or 3 (default 2)
+     * --unit-timeout s     a worker that does not answer a unit within s seconds counts as dead (default 600)
+     * --unique             count the distinct positions of every depth of --fen besides the nodes
+     * --unique-size n      the amount of distinct positions over all depths to size the set for (default 2^20)
+     * --serve port         run as a worker of a distributed perft on a port, 0 for any free port
+     * --stats              count the captures, en passent captures, castles, promotions, checks and mates per depth
+     * Exits with 1 if a node count is wrong or the nodes per second dropped more than allowed.
+     */
+    public static void main(String[] a) throws IOException {
+        PerftOptions options = PerftOptions.parse(a);
+        if (options.servePort >= 0) {
+            PerftHashTable table = options.hashMegabytes > 0 ? new PerftHashTable(options.hashMegabytes) : null;
+            new PerftWorker(table).serve(options.servePort);
+            return;
+        }
+        if (options.unique) {
+            countUnique(options);
+            return;
+        }
+        if (options.fen != null) {
+            countPosition(options);
+            return;
+        }
+        if (options.divideFen != null) {
+            PerftHashTable table = options.hashMegabytes > 0 ? new PerftHashTable(options.hashMegabytes) : null;
+            new PerftDivide(options.divideFen, options.depth, options.threads, table, options.checkpoint,
+                    options.resume).run(System.out);
+            return;
+        }
+        List<PerftRecord> suite = readSuite(options.depthLimit, options.filter);
+        if (options.stats) {
+            runStatistics(suite, options.threads);
+            if (!suite.stream().allMatch(PerftRecord::isCorrect)) {
+                System.exit(1);
+            }
+        } else if (options.scaling) {
+            measureScaling(suite, options.threads, options.splitDepth);
+        } else if (options.compare) {
+            compareHashed(suite, options.threads, options.splitDepth, options.jobs, options.hashMegabytes);
+        } else {
+            PerftHashTable table = options.hashMegabytes > 0 ? new PerftHashTable(options.hashMegabytes) : null;
+            runSuite(suite, options.threads, options.splitDepth, options.jobs, table, options.format);
+            PrintStream log = options.format == PerftOptions.Format.TEXT ? System.out : System.err;
+            boolean failed = !suite.stream().allMatch(PerftRecord::isCorrect);
+            if (options.baseline != null) {
+                double change = PerftBaseline.read(options.baseline).compare(suite, log);
+                if (change < -options.maxRegression) {
+                    log.printf("The nodes per second dropped more than %.1f%%%n", options.maxRegression);
+                    failed = true;
+                }
+            }
+            if (failed) {
+                System.exit(1);
+            }
+        }
     }
 }
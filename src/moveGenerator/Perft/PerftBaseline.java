@@ -0,0 +1,79 @@
+package moveGenerator.Perft;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The results of an earlier run of the suite, read from a file written with --format csv. A new run is compared with
+ * it only on the positions and depths that both have, so a quick pass can be compared with a full baseline. The
+ * time of a line depends on how it was counted: the positions that are counted at the same time with --jobs share the
+ * cores and the caches, more --threads count faster, and a hash table skips the transpositions. Runs with different
+ * settings are not compared.
+ */
+class PerftBaseline {
+    private final Map<String, PerftRecord> records = new HashMap<>();
+
+    /**
+     * Reads a baseline file
+     * @param path the file, with the CSV_HEADER of PerftRecord on the first line, or the header of an older version
+     * @return the baseline
+     * @throws IOException if the file can not be read
+     * @throws IllegalArgumentException if a line is not a perft record
+     */
+    static PerftBaseline read(String path) throws IOException {
+        PerftBaseline baseline = new PerftBaseline();
+        for (String line : Files.readAllLines(Paths.get(path))) {
+            if (line.trim().isEmpty() || line.startsWith("fen,")) { // the header, also of files with fewer columns
+                continue;
+            }
+            PerftRecord record = PerftRecord.fromCsv(line.trim());
+            baseline.records.put(record.getKey(), record);
+        }
+        return baseline;
+    }
+
+    /**
+     * Compares the nodes per second of a run with the baseline. The total is taken over the records both have,
+     * which is steadier than comparing the lines one by one, as the short lines take only a few milliseconds.
+     * @param results the records of the new run
+     * @param out     where to print the comparison
+     * @return the change of the total nodes per second in percent, negative if the new run is slower
+     * @throws IllegalArgumentException if a record of the baseline was counted with other settings than the new run, or
+     *                                  if none of the correct records of the new run are in the baseline, as then
+     *                                  nothing was compared (a typo in --filter, or a baseline of another suite)
+     */
+    double compare(List<PerftRecord> results, PrintStream out) {
+        long nodes = 0, nanos = 0, baselineNodes = 0, baselineNanos = 0;
+        int matched = 0;
+        for (PerftRecord result : results) {
+            PerftRecord old = records.get(result.getKey());
+            if (old == null || !result.isCorrect() || old.getActualNodes() < 0) {
+                continue;
+            }
+            if (!old.getSettings().equals(result.getSettings())) {
+                throw new IllegalArgumentException("The baseline was counted with " + old.getSettings() +
+                        " and this run with " + result.getSettings() + ", their nodes per second can not be compared");
+            }
+            matched++;
+            nodes += result.getActualNodes();
+            nanos += result.getNanos();
+            baselineNodes += old.getActualNodes();
+            baselineNanos += old.getNanos();
+        }
+        if (matched == 0) {
+            throw new IllegalArgumentException("None of the " + results.size() +
+                    " lines of this run are correct and in the baseline, so nothing was compared");
+        }
+        long nps = Perft.nodesPerSecond(nodes, nanos);
+        long baselineNps = Perft.nodesPerSecond(baselineNodes, baselineNanos);
+        double change = baselineNps == 0 ? 0 : (nps - baselineNps) * 100.0 / baselineNps;
+        out.printf("Baseline: %d of %d lines compared, nps: %d, baseline nps: %d, change: %+.1f%%%n", matched,
+                results.size(), nps, baselineNps, change);
+        return change;
+    }
+}
@@ -0,0 +1,214 @@
+package moveGenerator.Perft;
+
+import moveGenerator.LegalGenerator;
+import moveGenerator.MoveList;
+import state.Board;
+import state.Constants;
+import state.Move;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Counts the nodes below every move from the root separately, to find the move where a wrong count comes from.
+ *
+ * A deep divide can run for hours, so every finished root move can be written to a checkpoint file right away. When
+ * the run is started again with resume, the moves in the file are not counted again. The file starts with the fen
+ * and the depth, so it can not be resumed for another position by mistake, followed by a line per finished move:
+ * the encoded move, the move as text and the node count.
+ */
+public class PerftDivide {
+    private static final String HEADER = "# perft divide checkpoint";
+
+    private final Board board;
+    private final String fen;
+    private final int depth;
+    private final int threads;
+    private final PerftHashTable table; // null to count every node
+    private final Path checkpoint; // null to not write a checkpoint
+    private final boolean resume;
+    private FileOutputStream checkpointOut;
+
+    /**
+     * @param fen        the position
+     * @param depth      the depth, at least 1
+     * @param threads    the amount of root moves that are counted at the same time
+     * @param table      a hash table with node counts that all threads share, null to count every node
+     * @param checkpoint the file to write the finished root moves to, null for none
+     * @param resume     true to skip the root moves that are already in the checkpoint file
+     */
+    public PerftDivide(String fen, int depth, int threads, PerftHashTable table, String checkpoint, boolean resume) {
+        this.board = new Board(fen);
+        this.fen = fen;
+        this.depth = depth;
+        this.threads = threads;
+        this.table = table;
+        this.checkpoint = checkpoint != null ? Paths.get(checkpoint) : null;
+        this.resume = resume;
+    }
+
+    /**
+     * Counts the nodes below every root move and prints them, in the order of the moves, followed by the total
+     * @param out where to print the node counts
+     * @return the total amount of leaf nodes
+     * @throws IOException if the checkpoint file can not be read or written
+     * @throws IllegalArgumentException if the checkpoint file is for another position or depth
+     */
+    public long run(PrintStream out) throws IOException {
+        MoveList rootMoves = board.getMoveList();
+        Map<Integer, Long> done = resume && checkpoint != null && Files.exists(checkpoint) ?
+                readCheckpoint() : new HashMap<>();
+        if (checkpoint != null) {
+            boolean cutOff = !done.isEmpty() && !endsWithNewline();
+            checkpointOut = new FileOutputStream(checkpoint.toFile(), !done.isEmpty());
+            if (done.isEmpty()) {
+                write(HEADER + "\nfen " + fen + "\ndepth " + depth + "\n");
+            } else if (cutOff) {
+                write("\n"); // end the line that was cut off, so the next move gets a line of its own
+            }
+        }
+
+        long[] nodes = new long[rootMoves.size()];
+        List<Future<?>> counts = new ArrayList<>();
+        ExecutorService executor = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+        try {
+            for (int i = 0; i < rootMoves.size(); i++) {
+                int m = rootMoves.get(i);
+                if (done.containsKey(m)) {
+                    nodes[i] = done.get(m);
+                    out.println(moveToString(m) + ": " + nodes[i] + " (checkpoint)");
+                    continue;
+                }
+                int index = i;
+                Runnable count = () -> {
+                    nodes[index] = countMove(m);
+                    finished(m, nodes[index], out);
+                };
+                if (executor != null) {
+                    counts.add(executor.submit(count));
+                } else {
+                    count.run();
+                }
+            }
+            for (Future<?> count : counts) {
+                count.get();
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            throw new IllegalStateException("Counting the root moves was interrupted", e);
+        } finally {
+            if (executor != null) {
+                executor.shutdown();
+            }
+            if (checkpointOut != null) {
+                checkpointOut.close();
+            }
+        }
+
+        long total = 0;
+        out.println();
+        for (int i = 0; i < rootMoves.size(); i++) {
+            out.println(moveToString(rootMoves.get(i)) + ": " + nodes[i]);
+            total += nodes[i];
+        }
+        out.println("Moves: " + rootMoves.size() + ", nodes: " + total);
+        return total;
+    }
+
+    /**
+     * Counts the nodes below one root move, on a board of its own so the root moves can be counted at the same time
+     * @param m the encoded root move
+     * @return the amount of leaf nodes
+     */
+    private long countMove(int m) {
+        if (depth == 1) {
+            return 1;
+        }
+        Board b = board.copy();
+        b.makeMove(m);
+        LegalGenerator generator = new LegalGenerator();
+        return table != null ? Perft.perft(b, generator, depth - 1, table) : Perft.perft(b, generator, depth - 1);
+    }
+
+    /**
+     * Prints a finished root move and writes it to the checkpoint file. The file is forced to the disk, so the move
+     * is not lost when the machine stops right after.
+     */
+    private synchronized void finished(int m, long nodes, PrintStream out) {
+        out.println(moveToString(m) + ": " + nodes);
+        if (checkpointOut != null) {
+            try {
+                write(m + " " + moveToString(m) + " " + nodes + "\n");
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not write the checkpoint", e);
+            }
+        }
+    }
+
+    private void write(String s) throws IOException {
+        checkpointOut.write(s.getBytes(StandardCharsets.UTF_8));
+        checkpointOut.flush();
+        checkpointOut.getChannel().force(false);
+    }
+
+    /**
+     * Reads the root moves that are finished from the checkpoint file. A last line without a newline was cut off
+     * because the run was stopped while writing it, so it is ignored and that move is counted again.
+     * @return the node counts by encoded move
+     */
+    private Map<Integer, Long> readCheckpoint() throws IOException {
+        List<String> lines = Files.readAllLines(checkpoint, StandardCharsets.UTF_8);
+        if (lines.size() < 3 || !lines.get(0).equals(HEADER)) {
+            throw new IllegalArgumentException(checkpoint + " is not a perft divide checkpoint");
+        }
+        if (!lines.get(1).equals("fen " + fen) || !lines.get(2).equals("depth " + depth)) {
+            throw new IllegalArgumentException(checkpoint + " is for " + lines.get(1) + ", " + lines.get(2));
+        }
+        int complete = endsWithNewline() ? lines.size() : lines.size() - 1;
+        Map<Integer, Long> done = new HashMap<>();
+        for (String line : lines.subList(3, Math.max(complete, 3))) {
+            String[] parts = line.split(" ");
+            if (parts.length == 3) {
+                done.put(Integer.parseInt(parts[0]), Long.parseLong(parts[2]));
+            }
+        }
+        return done;
+    }
+
+    private boolean endsWithNewline() throws IOException {
+        byte[] bytes = Files.readAllBytes(checkpoint);
+        return bytes.length > 0 && bytes[bytes.length - 1] == '\n';
+    }
+
+    /**
+     * @param m the encoded move
+     * @return the move as text with the promotion piece, like e7e8q
+     */
+    static String moveToString(int m) {
+        String s = new Move(m).toString();
+        switch (Move.getPromotionPiece(m)) {
+            case Constants.KNIGHT:
+                return s + "n";
+            case Constants.BISHOP:
+                return s + "b";
+            case Constants.ROOK:
+                return s + "r";
+            case Constants.QUEEN:
+                return s + "q";
+            default:
+                return s;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package moveGenerator.Perft;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed size table that remembers the node count of a position at a depth, so a position that is reached again
+ * through a transposition does not have to be counted again. It is lossy: a new entry always replaces the old entry
+ * in its slot.
+ *
+ * Every entry is two longs: the key xor the data, and the data (the node count and the depth). A lookup only hits if
+ * both still belong together, so several threads can share the table without locks: an entry that is half written by
+ * another thread just looks like a miss.
+ */
+public class PerftHashTable {
+    private static final int ENTRY_SIZE = 2; // longs per entry
+    private static final int DEPTH_BITS = 8;
+    private static final long DEPTH_MASK = (1L << DEPTH_BITS) - 1;
+
+    private final long[] table;
+    private final int mask; // the amount of entries - 1, the amount of entries is a power of 2
+
+    private final LongAdder probes = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+
+    /**
+     * Makes a table of at most a certain size
+     * @param megabytes the size in megabytes, rounded down to a power of 2 amount of entries
+     * @throws IllegalArgumentException if the size is smaller than 1 MB or too large for one array
+     */
+    public PerftHashTable(int megabytes) {
+        if (megabytes < 1 || megabytes > 16384) {
+            throw new IllegalArgumentException("The size of the perft hash table should be between 1 and 16384 MB");
+        }
+        long entries = Long.highestOneBit((long) megabytes * 1024 * 1024 / (ENTRY_SIZE * Long.BYTES));
+        entries = Math.min(entries, Integer.highestOneBit(Integer.MAX_VALUE / ENTRY_SIZE));
+        this.table = new long[(int) entries * ENTRY_SIZE];
+        this.mask = (int) entries - 1;
+    }
+
+    /**
+     * Looks up the node count of a position
+     * @param key   the hash key of the position
+     * @param depth the depth the nodes are counted at
+     * @return the node count, or -1 if it is not in the table
+     */
+    public long probe(long key, int depth) {
+        probes.increment();
+        int index = index(key);
+        long data = table[index + 1];
+        if ((table[index] ^ data) == key && (data & DEPTH_MASK) == depth) {
+            hits.increment();
+            return data >>> DEPTH_BITS;
+        }
+        return -1;
+    }
+
+    /**
+     * Stores the node count of a position, replacing what was in its slot
+     * @param key   the hash key of the position
+     * @param depth the depth the nodes are counted at
+     * @param nodes the node count
+     */
+    public void store(long key, int depth, long nodes) {
+        int index = index(key);
+        long data = nodes << DEPTH_BITS | depth;
+        table[index] = key ^ data;
+        table[index + 1] = data;
+    }
+
+    private int index(long key) {
+        return ((int) key & mask) * ENTRY_SIZE;
+    }
+
+    /**
+     * @return the amount of entries in the table
+     */
+    public int size() {
+        return mask + 1;
+    }
+
+    /**
+     * @return the fraction of the lookups that found the position, 0 if there were none
+     */
+    public double getHitRate() {
+        long p = probes.sum();
+        return p == 0 ? 0 : (double) hits.sum() / p;
+    }
+
+    public long getProbes() {
+        return probes.sum();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+}
@@ -0,0 +1,198 @@
+package moveGenerator.Perft;
+
+/**
+ * The command line options of the perft suite runner
+ */
+class PerftOptions {
+    /**
+     * How the result of every position and depth is printed
+     */
+    enum Format {
+        TEXT, // the readable lines, with the summary
+        CSV, // a header and a line per record, the summary goes to stderr
+        JSON // a JSON object per line per record, the summary goes to stderr
+    }
+
+    int threads = 1; // the amount of threads to search with, 1 is the serial perft
+    int splitDepth = 1; // the amount of plies that are split into parallel tasks, 1 (the root) or 2
+    int jobs = 1; // the amount of positions of the suite that are counted at the same time
+    boolean scaling = false; // run the suite with 1, 2, 4 ... threads to show how the speed scales
+    int hashMegabytes = 0; // the size of the perft hash table, 0 for no hash table
+    boolean compare = false; // run the suite without and with the hash table to show the speedup
+    Format format = Format.TEXT;
+    String baseline = null; // a CSV file of an earlier run to compare the nodes per second with
+    double maxRegression = 5; // the largest drop in nodes per second compared to the baseline that is accepted, in %
+    int depthLimit = Integer.MAX_VALUE; // skip the depths above this
+    String filter = null; // a regular expression, only the positions with a fen it is found in are run
+    boolean stats = false; // count the kinds of moves per depth instead of only the nodes
+    String divideFen = null; // the position to count the nodes below every root move of, null to run the suite
+    int depth = 0; // the depth of the divide or of the single position
+    String checkpoint = null; // the file the divide writes the finished root moves to
+    boolean resume = false; // skip the root moves that are in the checkpoint file
+    String fen = null; // a single position to count, null to run the suite
+    int servePort = -1; // run as a worker of a distributed perft on this port, 0 for any free port, -1 to not
+    String workers = null; // the workers to count the single position with, as host:port,host:port
+    int spawn = 0; // the amount of worker processes to start on this machine to count the single position with
+    boolean unique = false; // count the distinct positions of every depth of the single position
+    long uniqueSize = 1 << 20; // the amount of distinct positions over all depths that the position set is sized for
+    int unitDepth = 2; // the ply the tree of the single position is split at into work units for the workers
+    int unitTimeout = 600; // the seconds a worker gets to count one work unit before it counts as dead
+
+    /**
+     * Reads the options from the command line arguments
+     * @param args the arguments, for example --threads 8 --split-depth 2
+     * @return the options, the defaults for the ones that are not given
+     * @throws IllegalArgumentException if an option is unknown or its value is invalid
+     */
+    static PerftOptions parse(String[] args) {
+        PerftOptions options = new PerftOptions();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--threads":
+                    options.threads = Integer.parseInt(value(args, ++i));
+                    if (options.threads < 1) {
+                        throw new IllegalArgumentException("--threads should be at least 1");
+                    }
+                    break;
+                case "--split-depth":
+                    options.splitDepth = Integer.parseInt(value(args, ++i));
+                    if (options.splitDepth < 1 || options.splitDepth > 2) {
+                        throw new IllegalArgumentException("--split-depth should be 1 or 2");
+                    }
+                    break;
+                case "--jobs":
+                    options.jobs = Integer.parseInt(value(args, ++i));
+                    if (options.jobs < 1) {
+                        throw new IllegalArgumentException("--jobs should be at least 1");
+                    }
+                    break;
+                case "--scaling":
+                    options.scaling = true;
+                    break;
+                case "--hash-mb":
+                    options.hashMegabytes = Integer.parseInt(value(args, ++i));
+                    if (options.hashMegabytes < 1) {
+                        throw new IllegalArgumentException("--hash-mb should be at least 1");
+                    }
+                    break;
+                case "--compare":
+                    options.compare = true;
+                    break;
+                case "--format":
+                    try {
+                        options.format = Format.valueOf(value(args, ++i).toUpperCase());
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalArgumentException("--format should be text, csv or json");
+                    }
+                    break;
+                case "--baseline":
+                    options.baseline = value(args, ++i);
+                    break;
+                case "--max-regression":
+                    options.maxRegression = Double.parseDouble(value(args, ++i));
+                    if (options.maxRegression < 0) {
+                        throw new IllegalArgumentException("--max-regression should not be negative");
+                    }
+                    break;
+                case "--depth-limit":
+                    options.depthLimit = Integer.parseInt(value(args, ++i));
+                    if (options.depthLimit < 1) {
+                        throw new IllegalArgumentException("--depth-limit should be at least 1");
+                    }
+                    break;
+                case "--filter":
+                    options.filter = value(args, ++i);
+                    break;
+                case "--stats":
+                    options.stats = true;
+                    break;
+                case "--divide":
+                    options.divideFen = value(args, ++i);
+                    break;
+                case "--depth":
+                    options.depth = Integer.parseInt(value(args, ++i));
+                    if (options.depth < 1) {
+                        throw new IllegalArgumentException("--depth should be at least 1");
+                    }
+                    break;
+                case "--checkpoint":
+                    options.checkpoint = value(args, ++i);
+                    break;
+                case "--resume":
+                    options.resume = true;
+                    break;
+                case "--fen":
+                    options.fen = value(args, ++i);
+                    break;
+                case "--serve":
+                    options.servePort = Integer.parseInt(value(args, ++i));
+                    if (options.servePort < 0 || options.servePort > 65535) {
+                        throw new IllegalArgumentException("--serve should be a port from 0 to 65535");
+                    }
+                    break;
+                case "--workers":
+                    options.workers = value(args, ++i);
+                    break;
+                case "--spawn":
+                    options.spawn = Integer.parseInt(value(args, ++i));
+                    if (options.spawn < 1) {
+                        throw new IllegalArgumentException("--spawn should be at least 1");
+                    }
+                    break;
+                case "--unique":
+                    options.unique = true;
+                    break;
+                case "--unique-size":
+                    options.uniqueSize = Long.parseLong(value(args, ++i));
+                    if (options.uniqueSize < 1) {
+                        throw new IllegalArgumentException("--unique-size should be at least 1");
+                    }
+                    break;
+                case "--unit-depth":
+                    options.unitDepth = Integer.parseInt(value(args, ++i));
+                    if (options.unitDepth < 2 || options.unitDepth > 3) {
+                        throw new IllegalArgumentException("--unit-depth should be 2 or 3");
+                    }
+                    break;
+                case "--unit-timeout":
+                    options.unitTimeout = Integer.parseInt(value(args, ++i));
+                    if (options.unitTimeout < 1) {
+                        throw new IllegalArgumentException("--unit-timeout should be at least 1");
+                    }
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        if (options.divideFen != null && options.depth == 0) {
+            throw new IllegalArgumentException("--divide needs a --depth");
+        }
+        if (options.fen != null && options.depth == 0) {
+            throw new IllegalArgumentException("--fen needs a --depth");
+        }
+        if ((options.workers != null || options.spawn > 0 || options.unique) && options.fen == null) {
+            throw new IllegalArgumentException("--workers, --spawn and --unique need a --fen");
+        }
+        if (options.resume && options.checkpoint == null) {
+            throw new IllegalArgumentException("--resume needs a --checkpoint");
+        }
+        if (options.compare && options.hashMegabytes == 0) {
+            options.hashMegabytes = 64;
+        }
+        return options;
+    }
+
+    /**
+     * Gets the value of an option
+     * @param args  all the arguments
+     * @param index the index of the value
+     * @return the value
+     * @throws IllegalArgumentException if the value is missing
+     */
+    private static String value(String[] args, int index) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException(args[index - 1] + " needs a value");
+        }
+        return args[index];
+    }
+}
@@ -0,0 +1,150 @@
+package moveGenerator.Perft;
+
+/**
+ * One position and depth of the perft suite with its expected node count, and after it is counted the actual node
+ * count and the time it took. A record can be written as a CSV line or a JSON object, so runs can be compared.
+ */
+class PerftRecord {
+    static final String CSV_HEADER = "fen,depth,expected,actual,nanos,nps,jobs,threads,split,hash";
+
+    private final String fen;
+    private final int depth;
+    private final long expectedNodes;
+    private long actualNodes = -1; // -1 until it is counted, or if counting failed
+    private long nanos;
+    // the settings that change the nanos: the amount of records that were counted at the same time, the threads and
+    // split depth of one count, and the entries of the hash table (0 without one)
+    private int jobs = 1;
+    private int threads = 1;
+    private int splitDepth = 1;
+    private int hashEntries = 0;
+
+    PerftRecord(String fen, int depth, long expectedNodes) {
+        this.fen = fen;
+        this.depth = depth;
+        this.expectedNodes = expectedNodes;
+    }
+
+    /**
+     * Reads a record from a line written by toCsv
+     * @param line the line, without the header. A line without the columns after nps was counted with 1 job on 1
+     *             thread and without a hash table
+     * @return the record with its actual node count and time
+     * @throws IllegalArgumentException if the line does not have all the columns
+     */
+    static PerftRecord fromCsv(String line) {
+        String[] columns = line.split(",");
+        if (columns.length < 5) {
+            throw new IllegalArgumentException("Not a perft record: " + line);
+        }
+        PerftRecord record = new PerftRecord(columns[0], Integer.parseInt(columns[1]), Long.parseLong(columns[2]));
+        record.setResult(Long.parseLong(columns[3]), Long.parseLong(columns[4]));
+        if (columns.length > 6) {
+            record.jobs = Integer.parseInt(columns[6]);
+        }
+        if (columns.length > 9) {
+            record.threads = Integer.parseInt(columns[7]);
+            record.splitDepth = Integer.parseInt(columns[8]);
+            record.hashEntries = Integer.parseInt(columns[9]);
+        }
+        return record;
+    }
+
+    /**
+     * Stores the result of counting
+     * @param actualNodes the node count, -1 if counting failed
+     * @param nanos       the wall time of the count in nanoseconds
+     */
+    void setResult(long actualNodes, long nanos) {
+        this.actualNodes = actualNodes;
+        this.nanos = nanos;
+    }
+
+    /**
+     * Stores how the record is counted
+     * @param jobs        the amount of records that are counted at the same time as this one, see --jobs
+     * @param threads     the amount of threads that count the record
+     * @param splitDepth  the amount of plies that are split into parallel tasks, only used with more threads
+     * @param hashEntries the amount of entries of the hash table, 0 without one
+     */
+    void setSettings(int jobs, int threads, int splitDepth, int hashEntries) {
+        this.jobs = jobs;
+        this.threads = threads;
+        this.splitDepth = threads > 1 ? splitDepth : 1;
+        this.hashEntries = hashEntries;
+    }
+
+    /**
+     * @return the settings the record was counted with, records with other settings have other nodes per second
+     */
+    String getSettings() {
+        return "--jobs " + jobs + ", --threads " + threads + ", --split-depth " + splitDepth + ", " +
+                (hashEntries > 0 ? "a hash table of " + hashEntries + " entries" : "no hash table");
+    }
+
+    String getFen() {
+        return fen;
+    }
+
+    int getDepth() {
+        return depth;
+    }
+
+    long getExpectedNodes() {
+        return expectedNodes;
+    }
+
+    long getActualNodes() {
+        return actualNodes;
+    }
+
+    long getNanos() {
+        return nanos;
+    }
+
+    boolean isCorrect() {
+        return actualNodes == expectedNodes;
+    }
+
+    long getNodesPerSecond() {
+        return Perft.nodesPerSecond(Math.max(actualNodes, 0), nanos);
+    }
+
+    /**
+     * @return what identifies the record in a baseline, the fen and the depth
+     */
+    String getKey() {
+        return fen + " D" + depth;
+    }
+
+    /**
+     * @return the record as a line of the columns in CSV_HEADER. A fen never contains a comma, so it is not quoted
+     */
+    String toCsv() {
+        return fen + "," + depth + "," + expectedNodes + "," + actualNodes + "," + nanos + "," + getNodesPerSecond() +
+                "," + jobs + "," + threads + "," + splitDepth + "," + hashEntries;
+    }
+
+    /**
+     * @return the record as a JSON object on one line
+     */
+    String toJson() {
+        return "{\"fen\":\"" + fen + "\",\"depth\":" + depth + ",\"expected\":" + expectedNodes + ",\"actual\":" +
+                actualNodes + ",\"nanos\":" + nanos + ",\"nps\":" + getNodesPerSecond() + ",\"jobs\":" +
+                jobs + ",\"threads\":" + threads + ",\"split\":" + splitDepth + ",\"hash\":" + hashEntries +
+                ",\"correct\":" + isCorrect() + "}";
+    }
+
+    /**
+     * @return the record as the line the suite runner has always printed
+     */
+    String toText() {
+        if (actualNodes < 0) {
+            return fen + " D" + depth + " expected: " + expectedNodes + " failed";
+        }
+        if (!isCorrect()) {
+            return fen + " D" + depth + " expected: " + expectedNodes + " actual: " + actualNodes;
+        }
+        return fen + " D" + depth + " done in " + nanos / 1_000_000 + " miliseconds, nps: " + getNodesPerSecond();
+    }
+}
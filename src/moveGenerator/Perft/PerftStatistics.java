@@ -0,0 +1,243 @@
+package moveGenerator.Perft;
+
+import moveGenerator.LegalGenerator;
+import moveGenerator.MoveList;
+import state.Board;
+import state.Move;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts the perft nodes per ply split into the kinds of moves: captures, en passent captures, castles, promotions,
+ * checks, discovered checks, double checks and mates. The numbers can be compared with the published tables.
+ *
+ * The counters are plain longs owned by one thread. With several threads every thread has its own PerftStatistics
+ * and they are added up at the end. The moves of the last ply are only made if they give check, to look for mate,
+ * so the kinds of check come from LegalGenerator.givesCheck and the other kinds from the flags of the move.
+ */
+public class PerftStatistics {
+    // The counters, indexed by kind
+    static final int NODES = 0;
+    static final int CAPTURES = 1; // including the en passent captures
+    static final int EN_PASSENT = 2;
+    static final int CASTLES = 3;
+    static final int PROMOTIONS = 4;
+    static final int CHECKS = 5; // including the discovered and double checks
+    static final int DISCOVERED_CHECKS = 6; // only the checks by a piece that did not move, not the double checks
+    static final int DOUBLE_CHECKS = 7;
+    static final int MATES = 8;
+    private static final String[] NAMES = {"Nodes", "Captures", "E.p.", "Castles", "Promotions", "Checks",
+            "Discovered", "Double", "Mates"};
+
+    private final long[][] counters; // [ply][kind], ply 1 are the moves from the root
+    private final int[][] checks; // the kind of check of every move of the list of a ply
+    private final LegalGenerator generator = new LegalGenerator();
+
+    /**
+     * @param depth the largest depth that will be counted
+     */
+    public PerftStatistics(int depth) {
+        this.counters = new long[depth + 1][NAMES.length];
+        this.checks = new int[depth + 1][MoveList.MAX_MOVES];
+    }
+
+    /**
+     * Counts the statistics of every ply up to a depth on one thread, adding them to the counters
+     * @param b     the position, it is changed during the count but restored at the end
+     * @param depth the depth, at least 1
+     */
+    public void count(Board b, int depth) {
+        countNode(b, depth, 1);
+    }
+
+    private void countNode(Board b, int depth, int ply) {
+        MoveList moves = b.getMoveList();
+        // the check squares are for this position only, so find the checks before going deeper
+        generator.findCheckSquares(b);
+        if (depth == 1) {
+            countLeaves(b, moves, ply);
+            return;
+        }
+        int[] plyChecks = checks[ply];
+        for (int i = 0; i < moves.size(); i++) {
+            plyChecks[i] = generator.givesCheck(moves.get(i));
+        }
+        for (int i = 0; i < moves.size(); i++) {
+            countMove(b, moves.get(i), plyChecks[i], depth, ply);
+        }
+    }
+
+    /**
+     * Counts the moves of the last ply. This is where almost all the time goes, so the counters are kept in local
+     * variables and only the moves that give check are made, to look for mate.
+     * @param b     the position before the moves
+     * @param moves the legal moves of the position
+     * @param ply   the ply of the moves
+     */
+    private void countLeaves(Board b, MoveList moves, int ply) {
+        long captures = 0, enPassent = 0, castles = 0, promotions = 0;
+        long checks = 0, discoveredChecks = 0, doubleChecks = 0, mates = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            int m = moves.get(i);
+            int check = generator.givesCheck(m);
+            if (Move.getFlags(m) > 1) { // most moves are quiet moves or double pushes, they are only nodes
+                if (Move.isCapture(m)) captures++;
+                if (Move.isEnPassent(m)) enPassent++;
+                if (Move.isKingCastle(m) || Move.isQueenCastle(m)) castles++;
+                if (Move.isPromotion(m)) promotions++;
+            }
+            if (check != LegalGenerator.NO_CHECK) {
+                checks++;
+                if (check == LegalGenerator.DISCOVERED_CHECK) discoveredChecks++;
+                if (check == LegalGenerator.DOUBLE_CHECK) doubleChecks++;
+                b.makeMove(m);
+                if (!generator.hasLegalMoves(b)) mates++;
+                b.unMakeMove(m);
+            }
+        }
+        long[] plyCounters = counters[ply];
+        plyCounters[NODES] += moves.size();
+        plyCounters[CAPTURES] += captures;
+        plyCounters[EN_PASSENT] += enPassent;
+        plyCounters[CASTLES] += castles;
+        plyCounters[PROMOTIONS] += promotions;
+        plyCounters[CHECKS] += checks;
+        plyCounters[DISCOVERED_CHECKS] += discoveredChecks;
+        plyCounters[DOUBLE_CHECKS] += doubleChecks;
+        plyCounters[MATES] += mates;
+    }
+
+    /**
+     * Counts one move and the tree below it
+     * @param b     the position before the move
+     * @param m     the encoded move
+     * @param check the kind of check the move gives, see LegalGenerator.givesCheck
+     * @param depth the depth left, including this move
+     * @param ply   the ply of the move, 1 for the moves from the root
+     */
+    private void countMove(Board b, int m, int check, int depth, int ply) {
+        long[] plyCounters = counters[ply];
+        plyCounters[NODES]++;
+        if (Move.isCapture(m)) plyCounters[CAPTURES]++;
+        if (Move.isEnPassent(m)) plyCounters[EN_PASSENT]++;
+        if (Move.isKingCastle(m) || Move.isQueenCastle(m)) plyCounters[CASTLES]++;
+        if (Move.isPromotion(m)) plyCounters[PROMOTIONS]++;
+        if (check == LegalGenerator.NO_CHECK && depth == 1) {
+            return; // nothing left to count, so the move does not have to be made
+        }
+
+        b.makeMove(m);
+        if (check != LegalGenerator.NO_CHECK) {
+            plyCounters[CHECKS]++;
+            if (check == LegalGenerator.DISCOVERED_CHECK) plyCounters[DISCOVERED_CHECKS]++;
+            if (check == LegalGenerator.DOUBLE_CHECK) plyCounters[DOUBLE_CHECKS]++;
+            if (!generator.hasLegalMoves(b)) plyCounters[MATES]++;
+        }
+        if (depth > 1) {
+            countNode(b, depth - 1, ply + 1);
+        }
+        b.unMakeMove(m);
+    }
+
+    /**
+     * Counts the statistics with several threads. The moves from the root are handed out to the threads one by one,
+     * every thread counts into its own PerftStatistics and they are added up at the end.
+     * @param b       the position, it is not changed
+     * @param depth   the depth, at least 1
+     * @param threads the amount of threads
+     * @return the statistics of every ply
+     */
+    public static PerftStatistics count(Board b, int depth, int threads) {
+        if (threads == 1) {
+            PerftStatistics statistics = new PerftStatistics(depth);
+            statistics.count(b.copy(), depth);
+            return statistics;
+        }
+        Board root = b.copy();
+        MoveList rootMoves = root.getMoveList();
+        AtomicInteger next = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<PerftStatistics>> perThread = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            perThread.add(executor.submit(() -> {
+                PerftStatistics statistics = new PerftStatistics(depth);
+                Board board = root.copy(); // owned by this thread only
+                statistics.generator.findCheckSquares(board);
+                int[] rootChecks = statistics.checks[1];
+                for (int i = 0; i < rootMoves.size(); i++) {
+                    rootChecks[i] = statistics.generator.givesCheck(rootMoves.get(i));
+                }
+                for (int i = next.getAndIncrement(); i < rootMoves.size(); i = next.getAndIncrement()) {
+                    statistics.countMove(board, rootMoves.get(i), rootChecks[i], depth, 1);
+                }
+                return statistics;
+            }));
+        }
+        PerftStatistics total = new PerftStatistics(depth);
+        try {
+            for (Future<PerftStatistics> statistics : perThread) {
+                total.add(statistics.get());
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            throw new IllegalStateException("Counting the statistics was interrupted", e);
+        } finally {
+            executor.shutdown();
+        }
+        return total;
+    }
+
+    /**
+     * Adds the counters of other statistics to these
+     * @param other statistics of at most the same depth
+     */
+    public void add(PerftStatistics other) {
+        for (int ply = 0; ply < other.counters.length; ply++) {
+            for (int kind = 0; kind < NAMES.length; kind++) {
+                counters[ply][kind] += other.counters[ply][kind];
+            }
+        }
+    }
+
+    /**
+     * Gets a counter
+     * @param ply  the ply, 1 for the moves from the root
+     * @param kind one of the kinds, like CAPTURES
+     * @return the count of that kind of moves at that ply
+     */
+    public long get(int ply, int kind) {
+        return counters[ply][kind];
+    }
+
+    /**
+     * @return the amount of leaf nodes, the same as perft gives
+     */
+    public long getNodes() {
+        return counters[counters.length - 1][NODES];
+    }
+
+    /**
+     * Prints a table with a row for every ply and a column for every kind
+     * @param out where to print the table
+     */
+    public void print(PrintStream out) {
+        out.printf("%-6s", "Depth");
+        for (String name : NAMES) {
+            out.printf("%14s", name);
+        }
+        out.println();
+        for (int ply = 1; ply < counters.length; ply++) {
+            out.printf("%-6d", ply);
+            for (long counter : counters[ply]) {
+                out.printf("%14d", counter);
+            }
+            out.println();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package moveGenerator.Perft;
+
+import moveGenerator.LegalGenerator;
+import state.Board;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A perft worker process for DistributedPerft. It listens on a port, and every connection sends it work units as
+ * lines of "fen;depth". The worker answers every line with the node count on a line of its own, or with "error" and
+ * the reason if the unit can not be counted. Every connection is handled by its own thread with its own generator.
+ */
+public class PerftWorker {
+    static final String LISTENING = "Worker listening on port ";
+
+    private final PerftHashTable table; // shared by all the connections, null to count every node
+
+    /**
+     * @param table a hash table with node counts, null to count every node
+     */
+    public PerftWorker(PerftHashTable table) {
+        this.table = table;
+    }
+
+    /**
+     * Accepts connections until the process is stopped. The port is printed once the worker listens, so a
+     * coordinator that started the process knows where to connect.
+     * @param port the port to listen on, 0 for any free port
+     * @throws IOException if the port can not be opened
+     */
+    public void serve(int port) throws IOException {
+        try (ServerSocket server = new ServerSocket(port)) {
+            System.out.println(LISTENING + server.getLocalPort());
+            System.out.flush();
+            while (true) {
+                Socket socket = server.accept();
+                Thread connection = new Thread(() -> handle(socket), "perft-worker-" + socket.getPort());
+                connection.setDaemon(true);
+                connection.start();
+            }
+        }
+    }
+
+    /**
+     * Counts the work units of one connection until the coordinator closes it
+     * @param socket the connection to the coordinator
+     */
+    private void handle(Socket socket) {
+        LegalGenerator generator = new LegalGenerator();
+        try (Socket s = socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(s.getOutputStream(), true)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                out.println(count(line, generator));
+            }
+        } catch (IOException e) {
+            // the coordinator went away, its units are counted by another worker
+        }
+    }
+
+    /**
+     * Counts one work unit
+     * @param unit      the unit as "fen;depth"
+     * @param generator the generator of the connection
+     * @return the node count, or "error" and the reason
+     */
+    private String count(String unit, LegalGenerator generator) {
+        try {
+            String[] parts = unit.split(";");
+            Board b = new Board(parts[0]);
+            int depth = Integer.parseInt(parts[1].trim());
+            long nodes = depth == 0 ? 1 :
+                    table != null ? Perft.perft(b, generator, depth, table) : Perft.perft(b, generator, depth);
+            return Long.toString(nodes);
+        } catch (RuntimeException e) {
+            return "error " + e;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package moveGenerator.Perft;
+
+import java.util.Arrays;
+
+/**
+ * A set of 64 bit position keys that can hold hundreds of millions of keys. The keys are stored as primitive longs
+ * with open addressing and linear probing, so nothing is boxed and an entry costs 8 bytes. The slots are split into
+ * segments of at most 2^24 longs, because one java array can not hold more than 2^31 elements.
+ *
+ * The key 0 marks an empty slot, so whether 0 itself is in the set is kept in a field. When the set is three quarters
+ * full the amount of slots is doubled, which needs the old and the new slots at the same time. Give a good estimate
+ * of the size to the constructor to avoid that for large sets. It is not thread safe.
+ */
+public class PositionSet {
+    private static final int SEGMENT_BITS = 24; // 16M slots, 128 MB per segment
+    private static final long MAX_SLOTS = 1L << 40;
+
+    private long[][] segments;
+    private long mask; // the amount of slots - 1, the amount of slots is a power of 2
+    private int segmentBits; // the amount of index bits within a segment
+    private long size = 0;
+    private long growAt; // the size at which the amount of slots is doubled
+    private boolean containsZero = false;
+
+    /**
+     * @param expectedSize the amount of keys that is expected, the set grows if there are more
+     */
+    public PositionSet(long expectedSize) {
+        long slots = Long.highestOneBit(Math.max(16, expectedSize + expectedSize / 3) * 2 - 1);
+        allocate(slots);
+    }
+
+    private void allocate(long slots) {
+        if (slots > MAX_SLOTS) {
+            throw new IllegalStateException("The position set can not hold more than " + MAX_SLOTS / 4 * 3 + " keys");
+        }
+        segmentBits = Math.min(SEGMENT_BITS, Long.numberOfTrailingZeros(slots));
+        segments = new long[(int) (slots >>> segmentBits)][1 << segmentBits];
+        mask = slots - 1;
+        growAt = slots / 4 * 3;
+    }
+
+    /**
+     * Adds a key
+     * @param key the key
+     * @return true if the key was not in the set yet
+     */
+    public boolean add(long key) {
+        if (key == 0) {
+            if (containsZero) {
+                return false;
+            }
+            containsZero = true;
+            size++;
+            return true;
+        }
+        if (!insert(key)) {
+            return false;
+        }
+        if (++size >= growAt) {
+            grow();
+        }
+        return true;
+    }
+
+    /**
+     * @param key the key
+     * @return true if the key is in the set
+     */
+    public boolean contains(long key) {
+        if (key == 0) {
+            return containsZero;
+        }
+        for (long index = index(key); ; index = (index + 1) & mask) {
+            long slot = segments[(int) (index >>> segmentBits)][(int) index & ((1 << segmentBits) - 1)];
+            if (slot == key) {
+                return true;
+            }
+            if (slot == 0) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Puts a key in the first free slot from its index, without counting it
+     * @return false if the key was already there
+     */
+    private boolean insert(long key) {
+        int segmentMask = (1 << segmentBits) - 1;
+        for (long index = index(key); ; index = (index + 1) & mask) {
+            long[] segment = segments[(int) (index >>> segmentBits)];
+            int i = (int) index & segmentMask;
+            if (segment[i] == key) {
+                return false;
+            }
+            if (segment[i] == 0) {
+                segment[i] = key;
+                return true;
+            }
+        }
+    }
+
+    private long index(long key) {
+        // the keys are zobrist keys, but they are mixed anyway so keys that only differ in the high bits spread out
+        return (key * 0x9E3779B97F4A7C15L >>> 20) & mask;
+    }
+
+    private void grow() {
+        long[][] old = segments;
+        allocate((mask + 1) * 2);
+        for (int s = 0; s < old.length; s++) {
+            long[] segment = old[s];
+            old[s] = null; // the old segment can be collected while the rest is moved
+            for (long key : segment) {
+                if (key != 0) {
+                    insert(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the amount of keys in the set
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * @return the amount of slots, the set uses 8 bytes per slot
+     */
+    public long capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Removes all keys, keeping the slots
+     */
+    public void clear() {
+        for (long[] segment : segments) {
+            Arrays.fill(segment, 0L);
+        }
+        size = 0;
+        containsZero = false;
+    }
+}
@@ -0,0 +1,137 @@
+package moveGenerator.Perft;
+
+import moveGenerator.MoveList;
+import state.Bitboard;
+import state.Board;
+import state.Constants;
+import state.Move;
+import state.Zobrist;
+
+import java.io.PrintStream;
+import java.util.SplittableRandom;
+
+/**
+ * Counts the distinct positions at every ply below a position, the numbers transposition tables and position
+ * databases are sized with. It walks the same tree as perft with make and unmake, and puts the key of every position
+ * it reaches with the ply in a PositionSet. A position that was already reached at the same ply is not walked again,
+ * as everything below it is already counted.
+ *
+ * Two positions are the same if they have the same pieces, color to move and castling rights, and the same en passent
+ * square only if an en passent capture is possible, as in the repetition rule. The board keeps the en passent square
+ * after every double push, so its key is taken out when it can not be captured. The keys are 64 bit zobrist keys, a
+ * collision makes the count one too low but is very unlikely at these sizes.
+ */
+public class UniquePerft {
+    private final long[] plyKeys; // a random key per ply, so the same position at another ply is another entry
+    private final long[] unique; // the amount of distinct positions per ply, ply 0 is the root
+    private final long[] nodes; // the amount of positions per ply that were walked, the rest were transpositions
+    private final PositionSet positions;
+    private final long[] bitboards = new long[14];
+
+    /**
+     * @param depth        the largest depth that will be counted
+     * @param expectedSize the amount of distinct positions that is expected over all plies, the set grows if there are
+     *                     more
+     */
+    public UniquePerft(int depth, long expectedSize) {
+        this.plyKeys = new long[depth + 1];
+        this.unique = new long[depth + 1];
+        this.nodes = new long[depth + 1];
+        this.positions = new PositionSet(expectedSize);
+        SplittableRandom random = new SplittableRandom(0x5EED);
+        for (int ply = 0; ply <= depth; ply++) {
+            plyKeys[ply] = random.nextLong();
+        }
+    }
+
+    /**
+     * Counts the distinct positions at every ply up to a depth
+     * @param b     the position, it is changed during the count but restored at the end
+     * @param depth the depth, at most the depth of the constructor
+     */
+    public void count(Board b, int depth) {
+        if (positions.add(positionKey(b) ^ plyKeys[0])) {
+            unique[0]++;
+            count(b, depth, 0);
+        }
+    }
+
+    private void count(Board b, int depth, int ply) {
+        if (depth == 0) {
+            return;
+        }
+        MoveList moves = b.getMoveList();
+        nodes[ply + 1] += moves.size();
+        for (int i = 0; i < moves.size(); i++) {
+            int m = moves.get(i);
+            b.makeMove(m);
+            if (positions.add(positionKey(b) ^ plyKeys[ply + 1])) {
+                unique[ply + 1]++;
+                count(b, depth - 1, ply + 1);
+            }
+            b.unMakeMove(m);
+        }
+    }
+
+    /**
+     * The key of a position without the en passent square if no pawn can capture en passent
+     * @param b the position
+     * @return the key
+     */
+    private long positionKey(Board b) {
+        long key = b.getHashKey();
+        int enPassentSquare = b.getEnPassentSquare();
+        if (enPassentSquare != 0 && !canCaptureEnPassent(b)) {
+            key ^= Zobrist.enPassentKey(enPassentSquare);
+        }
+        return key;
+    }
+
+    private boolean canCaptureEnPassent(Board b) {
+        long target = b.getEnPassenSquareBitboard();
+        b.copyBitboards(bitboards);
+        long pawns = bitboards[Constants.PAWN | b.colorToMove()];
+        long attackers = b.isWhiteToMove() ? Bitboard.soEaOne(target) | Bitboard.soWeOne(target) :
+                Bitboard.noEaOne(target) | Bitboard.noWeOne(target);
+        if ((pawns & attackers) == 0) {
+            return false; // most of the time, without generating the moves
+        }
+        // a pawn next to it may be pinned, or the capture may leave the king in check
+        MoveList moves = b.getMoveList();
+        for (int i = 0; i < moves.size(); i++) {
+            if (Move.isEnPassent(moves.get(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param ply the ply, 0 is the root
+     * @return the amount of distinct positions at that ply
+     */
+    public long getUnique(int ply) {
+        return unique[ply];
+    }
+
+    /**
+     * @return the amount of keys in the position set over all plies
+     */
+    public long getSize() {
+        return positions.size();
+    }
+
+    /**
+     * Prints a table with the perft count and the distinct positions of every ply, and how many moves were made at
+     * that ply. The positions below a transposition are not walked again, so there are less moves than perft nodes.
+     * @param out        where to print the table
+     * @param perftNodes the perft count of every depth, index 0 is not used
+     */
+    public void print(PrintStream out, long[] perftNodes) {
+        out.printf("%-6s%16s%16s%16s%n", "Depth", "Nodes", "Unique", "Walked");
+        for (int ply = 1; ply < unique.length; ply++) {
+            out.printf("%-6d%16d%16d%16d%n", ply, perftNodes[ply], unique[ply], nodes[ply]);
+        }
+        out.printf("Position set: %d keys in %d MB%n", positions.size(), positions.capacity() * Long.BYTES >> 20);
+    }
+}
@@ -0,0 +1,89 @@
+package moveGenerator;
+
+import state.Bitboard;
+
+/**
+ * A way to calculate the attacks of rooks and bishops. The attacks include the blockers of both colors.
+ * Which implementation is the fastest depends on the machine (mostly on the cache size), so it can be chosen with the
+ * system property sliderAttacks: "magic" (the default), "hyperbola" or "koggestone".
+ */
+public interface SliderAttacks {
+
+    String PROPERTY = "sliderAttacks";
+
+    /**
+     * The squares attacked by a rook
+     * @param square   the square of the rook, 0 indexed (a1 = 0, h8 = 63) as in the attack arrays in Constants
+     * @param occupied a bitboard containing the occupied squares
+     * @return a bitboard of all the squares the rook attacks
+     */
+    long rookAttacks(int square, long occupied);
+
+    /**
+     * The squares attacked by a bishop
+     * @param square   the square of the bishop, 0 indexed (a1 = 0, h8 = 63) as in the attack arrays in Constants
+     * @param occupied a bitboard containing the occupied squares
+     * @return a bitboard of all the squares the bishop attacks
+     */
+    long bishopAttacks(int square, long occupied);
+
+    /**
+     * The squares attacked by all the rooks in a bitboard combined. Implementations that work on whole sets at once
+     * override this, the default looks up every rook separately.
+     * @param rooks    a bitboard containing the rooks
+     * @param occupied a bitboard containing the occupied squares
+     * @return a bitboard of all the squares that are attacked by at least one of the rooks
+     */
+    default long rookAttacksSetwise(long rooks, long occupied) {
+        long attacks = 0;
+        while (rooks != 0) {
+            long rook = Bitboard.leastSignificantBit(rooks);
+            rooks = Bitboard.resetLeastSignificantBit(rooks);
+            attacks |= rookAttacks(Long.numberOfLeadingZeros(rook), occupied);
+        }
+        return attacks;
+    }
+
+    /**
+     * The squares attacked by all the bishops in a bitboard combined. See rookAttacksSetwise
+     * @param bishops  a bitboard containing the bishops
+     * @param occupied a bitboard containing the occupied squares
+     * @return a bitboard of all the squares that are attacked by at least one of the bishops
+     */
+    default long bishopAttacksSetwise(long bishops, long occupied) {
+        long attacks = 0;
+        while (bishops != 0) {
+            long bishop = Bitboard.leastSignificantBit(bishops);
+            bishops = Bitboard.resetLeastSignificantBit(bishops);
+            attacks |= bishopAttacks(Long.numberOfLeadingZeros(bishop), occupied);
+        }
+        return attacks;
+    }
+
+    /**
+     * Creates the implementation with the given name
+     * @param name one of "magic", "hyperbola" or "koggestone"
+     * @return the implementation
+     * @throws IllegalArgumentException if there is no implementation with this name
+     */
+    static SliderAttacks byName(String name) {
+        switch (name) {
+            case "magic":
+                return new MagicSliderAttacks();
+            case "hyperbola":
+                return new HyperbolaSliderAttacks();
+            case "koggestone":
+                return new KoggeStoneSliderAttacks();
+            default:
+                throw new IllegalArgumentException(name + " is not one of magic/hyperbola/koggestone");
+        }
+    }
+
+    /**
+     * Creates the implementation chosen with the system property sliderAttacks, magic bitboards if it is not set
+     * @return the implementation
+     */
+    static SliderAttacks fromSystemProperty() {
+        return byName(System.getProperty(PROPERTY, "magic"));
+    }
+}
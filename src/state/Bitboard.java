@@ -99,40 +99,6 @@ public class Bitboard {
         return l & -l;
     }
 
-    /**
-     * Splits a ray into two different rays. The split should be lying on the ray and will not be included in either one
-     * of the output rays.
-     * @param ray the ray to split
-     * @param split the splitting point. Should lie on the ray
-     * @return an array of length 2 that contains the splitted rays
-     */
-    public static long[] splitRay(long ray, long split) {
-        if (ray == 0) {
-            throw new IllegalArgumentException("there is no ray");
-        }
-        if ((ray & split) == 0) {
-            throw new IllegalArgumentException("split does not lie on ray");
-        }
-        long first = 0L;
-        long second = 0L;
-        boolean splitReached = false;
-        while (ray != 0) {
-            long square = leastSignificantBit(ray);
-            ray = resetLeastSignificantBit(ray);
-            if (square == split) {
-                splitReached = true;
-                continue; // do not add this to either ray
-            }
-
-            if (!splitReached) {
-                first |= square;
-            } else {
-                second |= square;
-            }
-        }
-        return new long[]{first, second};
-    }
-
     /**
      * Sets the least significant bit in a bitboard (upper rightmost one) to 0
      * @param l the bitboard to change
@@ -1,6 +1,7 @@
 package state;
 
 import moveGenerator.LegalGenerator;
+import moveGenerator.MoveList;
 
 import java.util.*;
 
@@ -12,37 +13,47 @@ public class Board {
     private long[] bitboards; // There are 12 different piece types
     private int[][] mailbox; // a redundant matrix to identify a piece by square (first coordinate being the x, second the y) (0 indexed)
     private boolean whiteToMove;
-    private Stack<Boolean> whiteQueenSideCastle;
-    private Stack<Boolean> whiteKingSideCastle;
-    private Stack<Boolean> blackQueenSideCastle;
-    private Stack<Boolean> blackKingSideCastle;
-    private Stack<Integer> enPassentSquare; // Ranging from 1 to 64. 0 if no square. Denotes the square right behind a double pawn push.
+    private boolean whiteQueenSideCastle;
+    private boolean whiteKingSideCastle;
+    private boolean blackQueenSideCastle;
+    private boolean blackKingSideCastle;
+    private int enPassentSquare; // Ranging from 1 to 64. 0 if no square. Denotes the square right behind a double pawn push.
                                  // So after 1.e4, this will be 21 (e3)
-    public Stack<Integer> halfMoveClock; // A clock counting the half moves since the last pawn move or capture. Used to determine
+    private int halfMoveClock; // A clock counting the half moves since the last pawn move or capture. Used to determine
                                // the fifty-move rule
-    public Stack<Move> moves = new Stack<>();
-
-    private Stack<String> fens = new Stack<>(); // A stack of fen representations of the past board positions to calculate threefold repetition
-
-    private List<Move> currentlyPossibleMoves;
+    private long hashKey; // The Zobrist hash of the current position, updated incrementally in makeMove
+
+    // The undo records, indexed by ply. Before a move is made, the state that cannot be derived from the move itself
+    // is saved here, so unMakeMove can restore it without any allocation.
+    private int ply = 0; // the amount of moves made on this board, also the index of the next free undo record
+    private int plyOffset = 0; // the amount of half moves that were played before the position this board started from
+    private int[] moveHistory = new int[INITIAL_HISTORY_SIZE]; // the encoded moves that were played
+    private long[] undoStates = new long[INITIAL_HISTORY_SIZE]; // castling rights, en passent square, half move clock and captured piece packed in one long
+    private long[] keyHistory = new long[INITIAL_HISTORY_SIZE]; // The hashes of the past board positions to calculate threefold repetition
+
+    private static final int INITIAL_HISTORY_SIZE = 1024;
+
+    // The layout of a packed undo state
+    private static final int WHITE_KING_SIDE_CASTLE_BIT = 1;
+    private static final int WHITE_QUEEN_SIDE_CASTLE_BIT = 1 << 1;
+    private static final int BLACK_KING_SIDE_CASTLE_BIT = 1 << 2;
+    private static final int BLACK_QUEEN_SIDE_CASTLE_BIT = 1 << 3;
+    private static final int EN_PASSENT_SHIFT = 4; // 7 bits, 0 to 64
+    private static final int CAPTURED_PIECE_SHIFT = 11; // 4 bits
+    private static final int NULL_MOVE_BIT = 1 << 15; // set if the record is of a null move instead of a move
+    private static final int HALF_MOVE_CLOCK_SHIFT = 16; // the remaining bits
+
+    // The legal moves of the position at every ply, generated on demand. null if they are not generated yet.
+    // Making a move invalidates the entry of the new ply, unmaking a move returns to the still valid entry of the previous ply.
+    private List<Move>[] generatedMoves = newMovesArray(INITIAL_HISTORY_SIZE + 1);
+    // The same moves in their int encoding. The lists are created once per ply and reused, moveListGenerated tells
+    // whether the list of a ply belongs to the current position at that ply.
+    private MoveList[] moveLists = new MoveList[INITIAL_HISTORY_SIZE + 1];
+    private boolean[] moveListGenerated = new boolean[INITIAL_HISTORY_SIZE + 1];
 
     private LegalGenerator generator = new LegalGenerator();
 
     public Board() {
-        // Set first values for the stack to circumsize EmptyStackExceptions
-        whiteQueenSideCastle = new Stack<>();
-        whiteKingSideCastle = new Stack<>();
-        blackQueenSideCastle = new Stack<>();
-        blackKingSideCastle = new Stack<>();
-        enPassentSquare = new Stack<>();
-        halfMoveClock = new Stack<>();
-        whiteQueenSideCastle.push(true);
-        whiteKingSideCastle.push(true);
-        blackQueenSideCastle.push(true);
-        blackKingSideCastle.push(true);
-        enPassentSquare.push(0);
-        halfMoveClock.push(0);
-
         bitboards = new long[14]; //(0 and 1 are not used due to the setup of the integers. 0 would be an empty square of the white pieces
         // while 1 would be an empty square of the black pieces.
         bitboards[Constants.WHITE_ROOK] = Constants.INITIAL_WHITE_ROOKS;
@@ -58,15 +69,17 @@ public class Board {
         bitboards[Constants.BLACK_KING] = Constants.INITIAL_BLACK_KING;
         bitboards[Constants.BLACK_PAWN] = Constants.INITIAL_BLACK_PAWNS;
         whiteToMove = true;
-        whiteQueenSideCastle.push(true);
-        whiteKingSideCastle.push(true);
-        blackKingSideCastle.push(true);
-        blackQueenSideCastle.push(true);
+        whiteQueenSideCastle = true;
+        whiteKingSideCastle = true;
+        blackKingSideCastle = true;
+        blackQueenSideCastle = true;
+        enPassentSquare = 0;
+        halfMoveClock = 0;
         mailbox = new int[8][8];
         for (int i = 0; i < 8; i++) {
             System.arraycopy(Constants.INITIAL_MAILBOX[i], 0, mailbox[i], 0, Constants.INITIAL_MAILBOX[i].length);
         }
-        currentlyPossibleMoves = generator.getMoves(this, Constants.WHITE);
+        hashKey = computeHashKey();
     }
 
     /**
@@ -142,34 +155,25 @@ public class Board {
 
         this.bitboards = convertMailboxToBitboards(mailbox);
 
-        whiteQueenSideCastle = new Stack<>();
-        whiteKingSideCastle = new Stack<>();
-        blackQueenSideCastle = new Stack<>();
-        blackKingSideCastle = new Stack<>();
-        enPassentSquare = new Stack<>();
-        halfMoveClock = new Stack<>();
-
         whiteToMove = parts[1].charAt(0) == 'w'; // true if it is a w, false if it is a b
 
-        whiteQueenSideCastle.push(parts[2].contains("Q"));
-        whiteKingSideCastle.push(parts[2].contains("K"));
-        blackQueenSideCastle.push(parts[2].contains("q"));
-        blackKingSideCastle.push(parts[2].contains("k"));
+        whiteQueenSideCastle = parts[2].contains("Q");
+        whiteKingSideCastle = parts[2].contains("K");
+        blackQueenSideCastle = parts[2].contains("q");
+        blackKingSideCastle = parts[2].contains("k");
 
         char enPassentX = parts[3].charAt(0);
         if (enPassentX == '-') {
-            enPassentSquare.push(0);
+            enPassentSquare = 0;
         } else {
             char enPassentY = parts[3].charAt(1);
-            int enPassentToPush = (Character.getNumericValue(enPassentY) - 1) * 8 + (enPassentX - 96);
-            enPassentSquare.push(enPassentToPush);
+            enPassentSquare = (Character.getNumericValue(enPassentY) - 1) * 8 + (enPassentX - 96);
         }
 
-        halfMoveClock.push(Integer.parseInt(parts[4]));
-        for (int i = 1; i < Integer.parseInt(parts[5]) * 2; i++) {
-            moves.add(new Move(0, 0, 0, 0, 0)); // add a dummy move
-        }
-        currentlyPossibleMoves = generator.getMoves(this, colorToMove());
+        halfMoveClock = Integer.parseInt(parts[4]);
+        // the half moves played before this position, so the move count is correct
+        plyOffset = (Integer.parseInt(parts[5]) - 1) * 2 + (whiteToMove ? 0 : 1);
+        hashKey = computeHashKey();
     }
 
     /**
@@ -195,73 +199,87 @@ public class Board {
      * @param m the move to execute
      */
     public void makeMove(Move m) {
-        int enPassentSquareToPush = 0; // These will be pushed to the stack at the end. To prevent multiple pushes.
-        int halfMoveClockToPush = halfMoveClock.peek() + 1; // to increment it
-        boolean whiteKingSideCastleToPush = whiteKingSideCastle.peek();
-        boolean whiteQueenSideCastleToPush = whiteQueenSideCastle.peek();
-        boolean blackKingSideCastleToPush = blackKingSideCastle.peek();
-        boolean blackQueenSideCastleToPush = blackQueenSideCastle.peek();
-        moves.push(m);
-        int movingPiece = m.getMovingPiece(); // directly the index in the bitmap array
-        int fromField = m.getFrom();
-        int toField = m.getTo();
+        makeMove(m.getEncoded());
+    }
+
+    /**
+     * Executes a move that is given in its int encoding, so no Move object is needed
+     * @param m the encoded move to execute
+     */
+    public void makeMove(int m) {
+        pushUndoRecord(m);
+        int movingPiece = Move.getMovingPiece(m); // directly the index in the bitmap array
+        int fromField = Move.getFrom(m);
+        int toField = Move.getTo(m);
+        // remove the old castling rights and en passent square from the hash, the new ones are added at the end
+        hashKey ^= Zobrist.castlingKey(whiteKingSideCastle, whiteQueenSideCastle, blackKingSideCastle, blackQueenSideCastle);
+        hashKey ^= Zobrist.enPassentKey(enPassentSquare);
+        enPassentSquare = 0;
+        halfMoveClock++;
 
         if (movingPiece == Constants.WHITE_KING) { //revoke castling rights
-            whiteKingSideCastleToPush = false;
-            whiteQueenSideCastleToPush = false;
+            whiteKingSideCastle = false;
+            whiteQueenSideCastle = false;
         } else if (movingPiece == Constants.BLACK_KING) {
-            blackKingSideCastleToPush = false;
-            blackQueenSideCastleToPush =false;
+            blackKingSideCastle = false;
+            blackQueenSideCastle =false;
         } else if (movingPiece == Constants.WHITE_ROOK) {
             if (fromField == 1) {
-                whiteQueenSideCastleToPush =false;
+                whiteQueenSideCastle =false;
             } else if (fromField == 8) {
-                whiteKingSideCastleToPush =false;
+                whiteKingSideCastle =false;
             }
         } else if (movingPiece == Constants.BLACK_ROOK) {
             if (fromField == 57) {
-                blackQueenSideCastleToPush =false;
+                blackQueenSideCastle =false;
             } else if (fromField == 64) {
-                blackKingSideCastleToPush =false;
+                blackKingSideCastle =false;
             }
         }
         // Set en-passant and half move clock if applicable
         if (movingPiece == Constants.WHITE_PAWN) { // If it is a white pawn
-            halfMoveClockToPush = 0;
+            halfMoveClock = 0;
              if (toField - fromField == 16) { //If it is a white pawn push
-                 enPassentSquareToPush = toField - 8;
+                 enPassentSquare = toField - 8;
              }
         } else if (movingPiece == Constants.BLACK_PAWN) { // If it is a black pawn
-            halfMoveClockToPush = 0;
+            halfMoveClock = 0;
             if (fromField - toField == 16) { //If it is a black pawn push
-                enPassentSquareToPush = toField + 8;
+                enPassentSquare = toField + 8;
             }
         }
 
         // delete the piece from the old square
         bitboards[movingPiece] = bitboards[movingPiece] & ~(1L << (64 - fromField)); // A mask setting the "from" bit to 0
+        hashKey ^= Zobrist.pieceKey(movingPiece, fromField);
         // set the piece to the new square
-        if (!m.isPromotion()) { // set the bit of the correct map
+        if (!Move.isPromotion(m)) { // set the bit of the correct map
             bitboards[movingPiece] = bitboards[movingPiece] | (1L << (64 - toField)); // A mask setting the "to" bit to 1
+            hashKey ^= Zobrist.pieceKey(movingPiece, toField);
         } else {
-            int promotionPiece = m.getPromotionPiece() | Constants.getColor(movingPiece);
+            int promotionPiece = Move.getPromotionPiece(m) | Constants.getColor(movingPiece);
             bitboards[promotionPiece] = bitboards[promotionPiece] | (1L << (64 - toField));
+            hashKey ^= Zobrist.pieceKey(promotionPiece, toField);
         }
-        if (m.isKingCastle()) {
+        if (Move.isKingCastle(m)) {
             if (movingPiece == Constants.WHITE_KING) {
                 bitboards[Constants.WHITE_ROOK] = bitboards[Constants.WHITE_ROOK] & ~(1L << (64 - 8)); // Set the right rook to 0
                 bitboards[Constants.WHITE_ROOK] = bitboards[Constants.WHITE_ROOK] | (1L << (64 - 6)); // Set the rook on square 6
+                hashKey ^= Zobrist.pieceKey(Constants.WHITE_ROOK, 8) ^ Zobrist.pieceKey(Constants.WHITE_ROOK, 6);
             } else if (movingPiece == Constants.BLACK_KING) { //Can only be BLACK_KING, but still check for safety
                 bitboards[Constants.BLACK_ROOK] = bitboards[Constants.BLACK_ROOK] & ~(1L << (64 - 64));
                 bitboards[Constants.BLACK_ROOK] = bitboards[Constants.BLACK_ROOK] | (1L << (64 - 62));
+                hashKey ^= Zobrist.pieceKey(Constants.BLACK_ROOK, 64) ^ Zobrist.pieceKey(Constants.BLACK_ROOK, 62);
             }
-        } else if (m.isQueenCastle()) {
+        } else if (Move.isQueenCastle(m)) {
             if (movingPiece == Constants.WHITE_KING) {
                 bitboards[Constants.WHITE_ROOK] = bitboards[Constants.WHITE_ROOK] & ~(1L << (64 - 1)); // Set the right rook to 0
                 bitboards[Constants.WHITE_ROOK] = bitboards[Constants.WHITE_ROOK] | (1L << (64 - 4)); // Set the rook on square 6
+                hashKey ^= Zobrist.pieceKey(Constants.WHITE_ROOK, 1) ^ Zobrist.pieceKey(Constants.WHITE_ROOK, 4);
             } else if (movingPiece == Constants.BLACK_KING) { //Can only be BLACK_KING, but still check for safety
                 bitboards[Constants.BLACK_ROOK] = bitboards[Constants.BLACK_ROOK] & ~(1L << (64 - 57));
                 bitboards[Constants.BLACK_ROOK] = bitboards[Constants.BLACK_ROOK] | (1L << (64 - 60));
+                hashKey ^= Zobrist.pieceKey(Constants.BLACK_ROOK, 57) ^ Zobrist.pieceKey(Constants.BLACK_ROOK, 60);
             }
         }
         int toX = (toField-1) % 8;
@@ -269,38 +287,41 @@ public class Board {
         int fromX = (fromField-1) % 8;
         int fromY = (fromField-1) / 8;
         // remove the captured piece
-        if (m.isCapture()) { //if there is a capture:
-            halfMoveClockToPush = 0;
+        if (Move.isCapture(m)) { //if there is a capture:
+            halfMoveClock = 0;
 
-            if (!m.isEnPassent()) {
-                int capturedPiece = m.getCapturedPiece();
+            if (!Move.isEnPassent(m)) {
+                int capturedPiece = Move.getCapturedPiece(m);
                 bitboards[capturedPiece] = bitboards[capturedPiece] & ~(1L << (64 - toField)); // A mask setting the "to" bit to 0
+                hashKey ^= Zobrist.pieceKey(capturedPiece, toField);
                 if (capturedPiece == Constants.WHITE_ROOK) { //revoke castling rights if rooks are captured
-                    if (toField == 1) whiteQueenSideCastleToPush = false;
-                    if (toField == 8) whiteKingSideCastleToPush = false;
+                    if (toField == 1) whiteQueenSideCastle = false;
+                    if (toField == 8) whiteKingSideCastle = false;
                 } else if (capturedPiece == Constants.BLACK_ROOK) {
-                    if (toField == 57) blackQueenSideCastleToPush = false;
-                    if (toField == 64) blackKingSideCastleToPush = false;
+                    if (toField == 57) blackQueenSideCastle = false;
+                    if (toField == 64) blackKingSideCastle = false;
                 }
             } else {
                 if (movingPiece == Constants.WHITE_PAWN) {
                     int captureField = fromY * 8 + toX + 1;
                     bitboards[Constants.BLACK_PAWN] = bitboards[Constants.BLACK_PAWN] & ~(1L << (64 - captureField));
+                    hashKey ^= Zobrist.pieceKey(Constants.BLACK_PAWN, captureField);
                 } else if (movingPiece == Constants.BLACK_PAWN) {
                     int captureField = fromY * 8 + toX + 1;
                     bitboards[Constants.WHITE_PAWN] = bitboards[Constants.WHITE_PAWN] & ~(1L << (64 - captureField));
+                    hashKey ^= Zobrist.pieceKey(Constants.WHITE_PAWN, captureField);
                 }
             }
         }
         // Update the mailbox representation
         mailbox[fromX][fromY] = Constants.EMPTY;
-        if (!m.isPromotion()) {
+        if (!Move.isPromotion(m)) {
             mailbox[toX][toY] = movingPiece;
         } else {
-            int promotionPiece = m.getPromotionPiece() | Constants.getColor(movingPiece);
+            int promotionPiece = Move.getPromotionPiece(m) | Constants.getColor(movingPiece);
             mailbox[toX][toY] = promotionPiece;
         }
-        if (m.isKingCastle()) {
+        if (Move.isKingCastle(m)) {
             if (movingPiece == Constants.WHITE_KING) {
                 mailbox[7][0] = Constants.EMPTY;
                 mailbox[5][0] = Constants.WHITE_ROOK;
@@ -308,7 +329,7 @@ public class Board {
                 mailbox[7][7] = Constants.EMPTY;
                 mailbox[5][7] = Constants.BLACK_ROOK;
             }
-        } else if (m.isQueenCastle()) {
+        } else if (Move.isQueenCastle(m)) {
             if (movingPiece == Constants.WHITE_KING) {
                 mailbox[0][0] = Constants.EMPTY;
                 mailbox[3][0] = Constants.WHITE_ROOK;
@@ -316,22 +337,18 @@ public class Board {
                 mailbox[0][7] = Constants.EMPTY;
                 mailbox[3][7] = Constants.BLACK_ROOK;
             }
-        } else if (m.isEnPassent()) { //remove the trailing pawn
+        } else if (Move.isEnPassent(m)) { //remove the trailing pawn
             mailbox[toX][fromY] = Constants.EMPTY;
         }
 
-        enPassentSquare.push(enPassentSquareToPush);
-        halfMoveClock.push(halfMoveClockToPush);
-        whiteKingSideCastle.push(whiteKingSideCastleToPush);
-        whiteQueenSideCastle.push(whiteQueenSideCastleToPush);
-        blackKingSideCastle.push(blackKingSideCastleToPush);
-        blackQueenSideCastle.push(blackQueenSideCastleToPush);
+        hashKey ^= Zobrist.castlingKey(whiteKingSideCastle, whiteQueenSideCastle, blackKingSideCastle, blackQueenSideCastle);
+        hashKey ^= Zobrist.enPassentKey(enPassentSquare);
 
         // Switch turns
         whiteToMove = !whiteToMove;
-        // get the new moves
-        this.currentlyPossibleMoves = generator.getMoves(this, colorToMove());
-        fens.push(this.FENwithoutMoveCount());
+        hashKey ^= Zobrist.BLACK_TO_MOVE;
+        // the moves of this new position are not generated yet
+        invalidateMoves(ply);
     }
 
     /**
@@ -340,39 +357,40 @@ public class Board {
      * @param m
      */
     public void unMakeMove(Move m) {
-        if (moves.peek() != m) {
+        unMakeMove(m.getEncoded());
+    }
+
+    /**
+     * Undos a move that is given in its int encoding.
+     * @throws IllegalArgumentException if m is not the exact last move on the stack
+     * @param m the encoded move
+     */
+    public void unMakeMove(int m) {
+        if (ply == 0 || moveHistory[ply - 1] != m || isNullMove(ply - 1)) {
             throw new IllegalArgumentException("This move was not the last one played");
         }
-        //Undo the castling rights
-        whiteKingSideCastle.pop();
-        whiteQueenSideCastle.pop();
-        blackKingSideCastle.pop();
-        blackQueenSideCastle.pop();
-        enPassentSquare.pop();
-        //undo halfmoveclock
-        halfMoveClock.pop();
-        //delete this move from the moves list
-        moves.pop();
-        fens.pop();
+        //Undo the castling rights, en passent square, halfmoveclock and hash
+        invalidateMoves(ply); // the moves of the position after m are no longer valid
+        popUndoRecord();
         //set the turn
         whiteToMove = !whiteToMove;
 
         //the bitboard representation
-        int toField = m.getTo();
-        int fromField = m.getFrom();
-        int movingPiece = m.getMovingPiece();
+        int toField = Move.getTo(m);
+        int fromField = Move.getFrom(m);
+        int movingPiece = Move.getMovingPiece(m);
         bitboards[movingPiece] = bitboards[movingPiece] & ~(1L << (64 - toField)); // Remove the piece from the to field
         bitboards[movingPiece] = bitboards[movingPiece] | (1L << (64 - fromField)); // Set the piece to the from field
-        if (m.isPromotion()) { //if promotion, remove the promotionpiece
-            int promotionPiece = m.getPromotionPiece() | Constants.getColor(movingPiece);
+        if (Move.isPromotion(m)) { //if promotion, remove the promotionpiece
+            int promotionPiece = Move.getPromotionPiece(m) | Constants.getColor(movingPiece);
             bitboards[promotionPiece] = bitboards[promotionPiece] & ~(1L << (64 - toField));
         }
         int toX = (toField-1) % 8; //0 indexed
         int toY = (toField-1) / 8;
         int fromX = (fromField-1) % 8;
         int fromY = (fromField-1) / 8;
-        if (m.isCapture()) {
-            if (m.isEnPassent()) {
+        if (Move.isCapture(m)) {
+            if (Move.isEnPassent(m)) {
                 if (movingPiece == Constants.WHITE_PAWN) {
                     int captureField = fromY * 8 + toX + 1;
                     bitboards[Constants.BLACK_PAWN] = bitboards[Constants.BLACK_PAWN] | (1L << (64 - captureField));
@@ -381,12 +399,12 @@ public class Board {
                     bitboards[Constants.WHITE_PAWN] = bitboards[Constants.WHITE_PAWN] | (1L << (64 - captureField));
                 }
             } else { // normal capture, so set the piece back
-                int capturedPiece = m.getCapturedPiece();
+                int capturedPiece = getCapturedPiece(undoStates[ply]);
                 bitboards[capturedPiece] = bitboards[capturedPiece] | (1L << 64 - toField);
             }
         } else { // can never be a castling if it was a capture
             // if it was a castling, also set the rook back
-            if (m.isKingCastle()) {
+            if (Move.isKingCastle(m)) {
                 if (movingPiece == Constants.WHITE_KING) {
                     bitboards[Constants.WHITE_ROOK] = bitboards[Constants.WHITE_ROOK] | (1L << (64 - 8)); // Set the right rook to its original place
                     bitboards[Constants.WHITE_ROOK] = bitboards[Constants.WHITE_ROOK] & ~(1L << (64 - 6)); // remove the rook from 6
@@ -394,7 +412,7 @@ public class Board {
                     bitboards[Constants.BLACK_ROOK] = bitboards[Constants.BLACK_ROOK] | (1L << (64 - 64));
                     bitboards[Constants.BLACK_ROOK] = bitboards[Constants.BLACK_ROOK] & ~(1L << (64 - 62));
                 }
-            } else if (m.isQueenCastle()) {
+            } else if (Move.isQueenCastle(m)) {
                 if (movingPiece == Constants.WHITE_KING) {
                     bitboards[Constants.WHITE_ROOK] = bitboards[Constants.WHITE_ROOK] | (1L << (64 - 1)); // Set the right rook to its original square
                     bitboards[Constants.WHITE_ROOK] = bitboards[Constants.WHITE_ROOK] & ~(1L << (64 - 4)); // Remove from square 6
@@ -407,14 +425,13 @@ public class Board {
         // normal moves and promotion undo
         mailbox[fromX][fromY] = movingPiece;
         mailbox[toX][toY] = Constants.EMPTY;
-        if (m.isCapture()) {
-            if (m.isEnPassent()) { // add the pawn
+        if (Move.isCapture(m)) {
+            if (Move.isEnPassent(m)) { // add the pawn
                 mailbox[toX][fromY] = Constants.PAWN | Constants.getColor(movingPiece)^1; // opposite color pawn
             } else { // normal capture
-                int capturedPiece = m.getCapturedPiece();
-                mailbox[toX][toY] = capturedPiece;
+                mailbox[toX][toY] = getCapturedPiece(undoStates[ply]);
             }
-        } else if (m.isKingCastle()) { // undo the castlings
+        } else if (Move.isKingCastle(m)) { // undo the castlings
             if (movingPiece == Constants.WHITE_KING) {
                 mailbox[7][0] = Constants.WHITE_ROOK;
                 mailbox[5][0] = Constants.EMPTY;
@@ -422,7 +439,7 @@ public class Board {
                 mailbox[7][7] = Constants.BLACK_ROOK;
                 mailbox[5][7] = Constants.EMPTY;
             }
-        } else if (m.isQueenCastle()) {
+        } else if (Move.isQueenCastle(m)) {
             if (movingPiece == Constants.WHITE_KING) {
                 mailbox[0][0] = Constants.WHITE_ROOK;
                 mailbox[3][0] = Constants.EMPTY;
@@ -431,8 +448,34 @@ public class Board {
                 mailbox[3][7] = Constants.EMPTY;
             }
         }
-        // get the new moves
-        this.currentlyPossibleMoves = generator.getMoves(this, colorToMove());
+    }
+
+    /**
+     * Passes the turn without moving a piece, for null move pruning in the search. The en passent square is cleared,
+     * and the half move clock is set to 0, so no repetition is found with the positions before the null move.
+     */
+    public void makeNullMove() {
+        pushUndoRecord(0);
+        undoStates[ply - 1] |= NULL_MOVE_BIT;
+        hashKey ^= Zobrist.enPassentKey(enPassentSquare);
+        enPassentSquare = 0;
+        halfMoveClock = 0;
+        whiteToMove = !whiteToMove;
+        hashKey ^= Zobrist.BLACK_TO_MOVE;
+        invalidateMoves(ply);
+    }
+
+    /**
+     * Undoes makeNullMove
+     * @throws IllegalArgumentException if the last move was not a null move
+     */
+    public void unmakeNullMove() {
+        if (ply == 0 || !isNullMove(ply - 1)) {
+            throw new IllegalArgumentException("The last move was not a null move");
+        }
+        invalidateMoves(ply);
+        popUndoRecord();
+        whiteToMove = !whiteToMove;
     }
 
     public boolean isWhiteToMove() {
@@ -451,6 +494,14 @@ public class Board {
         return this.bitboards.clone(); // a copy of the bitboards array
     }
 
+    /**
+     * Copies the bitboards into an existing array, so they can be read without allocating a copy
+     * @param target an array of at least 14 longs, indexed by piecetype
+     */
+    public void copyBitboards(long[] target) {
+        System.arraycopy(this.bitboards, 0, target, 0, this.bitboards.length);
+    }
+
     /**
      * A FEN representation of the board
      */
@@ -461,12 +512,12 @@ public class Board {
         s.append(' ');
 
         //append half-movecount
-        s.append(halfMoveClock.peek());
+        s.append(halfMoveClock);
 
         s.append(' ');
 
         //append total move count
-        s.append((moves.size() / 2) + 1);
+        s.append(((plyOffset + ply) / 2) + 1);
 
         return s.toString(); // remove the trailing /
     }
@@ -587,23 +638,23 @@ public class Board {
         s.append(' ');
 
         //Castling rights
-        if (!(blackKingSideCastle.peek() || blackQueenSideCastle.peek() || whiteKingSideCastle.peek() || whiteQueenSideCastle.peek())) {
+        if (!(blackKingSideCastle || blackQueenSideCastle || whiteKingSideCastle || whiteQueenSideCastle)) {
             s.append('-');
         } else {
-            if (whiteKingSideCastle.peek()) s.append('K');
-            if (whiteQueenSideCastle.peek()) s.append('Q');
-            if (blackKingSideCastle.peek()) s.append('k');
-            if (blackQueenSideCastle.peek()) s.append('q');
+            if (whiteKingSideCastle) s.append('K');
+            if (whiteQueenSideCastle) s.append('Q');
+            if (blackKingSideCastle) s.append('k');
+            if (blackQueenSideCastle) s.append('q');
         }
 
         s.append(' ');
 
         // en passant
-        if (enPassentSquare.peek() == 0) s.append('-');
+        if (enPassentSquare == 0) s.append('-');
         else {
-            int x = enPassentSquare.peek() % 8;
+            int x = enPassentSquare % 8;
             x = x == 0 ? 8 : x; //8 % 8 will be 0, but we want 8
-            int y = (enPassentSquare.peek() / 8) + 1;
+            int y = (enPassentSquare / 8) + 1;
             char xChar = (char) (x + 96); // 97 is a, 104 is h
             s.append(xChar);
             s.append(y);
@@ -664,7 +715,7 @@ public class Board {
      * @return the en passent square 1 indexed.
      */
     public int getEnPassentSquare() {
-        return this.enPassentSquare.peek();
+        return this.enPassentSquare;
     }
 
     /**
@@ -672,23 +723,23 @@ public class Board {
      * @return the en passent square in bitboard form or 0 if there is no en passent square
      */
     public long getEnPassenSquareBitboard() {
-        return (this.enPassentSquare.peek() != 0) ? 1L << (64 - this.enPassentSquare.peek()) : 0;
+        return (this.enPassentSquare != 0) ? 1L << (64 - this.enPassentSquare) : 0;
     }
 
     public boolean isWhiteQueenSideCastle() {
-        return this.whiteQueenSideCastle.peek();
+        return this.whiteQueenSideCastle;
     }
 
     public boolean isWhiteKingSideCastle() {
-        return this.whiteKingSideCastle.peek();
+        return this.whiteKingSideCastle;
     }
 
     public boolean isBlackQueenSideCastle() {
-        return this.blackQueenSideCastle.peek();
+        return this.blackQueenSideCastle;
     }
 
     public boolean isBlackKingSideCastle() {
-        return this.blackKingSideCastle.peek();
+        return this.blackKingSideCastle;
     }
 
     /**
@@ -708,29 +759,166 @@ public class Board {
      * @return a list of all the legal moves for color @param color
      */
     public List<Move> getMoves() {
-        return this.currentlyPossibleMoves;
+        if (generatedMoves[ply] == null) { // only generate them when they are asked for
+            generatedMoves[ply] = getMoveList().toList();
+        }
+        return generatedMoves[ply];
+    }
+
+    /**
+     * Gets all the legal moves of the color to move in their int encoding. The list is reused, it is only valid until
+     * the position at this ply changes.
+     * @return the legal moves of the current position
+     */
+    public MoveList getMoveList() {
+        if (!moveListGenerated[ply]) { // only generate them when they are asked for
+            if (moveLists[ply] == null) moveLists[ply] = new MoveList();
+            generator.generateMoves(this, colorToMove(), moveLists[ply]);
+            moveListGenerated[ply] = true;
+        }
+        return moveLists[ply];
+    }
+
+    /**
+     * Marks the moves of a ply as not generated, the move list itself is kept to be reused
+     * @param ply the ply of which the position changed
+     */
+    private void invalidateMoves(int ply) {
+        generatedMoves[ply] = null;
+        moveListGenerated[ply] = false;
     }
 
     public boolean isCheckMate() {
-        return currentlyPossibleMoves.size() == 0 && colorToMoveInCheck();
+        return getMoveList().isEmpty() && colorToMoveInCheck();
     }
 
     public boolean isStaleMate() {
-        return currentlyPossibleMoves.size() == 0 && !colorToMoveInCheck();
+        return getMoveList().isEmpty() && !colorToMoveInCheck();
     }
 
     public boolean fiftyMoveRule() {
-        return this.halfMoveClock.peek() >= 50;
+        return this.halfMoveClock >= 50;
     }
 
+    /**
+     * Checks whether the current position occurred at least three times. Only the positions since the last pawn move or
+     * capture (the half move clock) can be equal to the current one, so only those are scanned, and only those with
+     * the same color to move.
+     * @return true if the current position occurred three times or more
+     */
     public boolean threefoldRepetition() {
-        return Collections.frequency(fens, this.FENwithoutMoveCount()) >= 3;
+        int occurrences = 1; // the current position itself
+        int oldest = Math.max(0, ply - halfMoveClock);
+        for (int i = ply - 2; i >= oldest; i -= 2) {
+            if (keyHistory[i] == hashKey) {
+                occurrences++;
+                if (occurrences >= 3) return true;
+            }
+        }
+        return false;
     }
 
     public boolean isPotentialDraw() {
         return threefoldRepetition() || fiftyMoveRule();
     }
 
+    /**
+     * Gets the Zobrist hash of the current position. Two positions with the same pieces, color to move, castling rights
+     * and en passent square have the same hash.
+     * @return the 64 bit hash of the current position
+     */
+    public long getHashKey() {
+        return this.hashKey;
+    }
+
+    /**
+     * Calculates the Zobrist hash of the current position from scratch
+     * @return the hash of the current position
+     */
+    private long computeHashKey() {
+        long key = 0L;
+        for (int x = 0; x < 8; x++) {
+            for (int y = 0; y < 8; y++) {
+                if (mailbox[x][y] != Constants.EMPTY) {
+                    key ^= Zobrist.pieceKey(mailbox[x][y], y * 8 + x + 1);
+                }
+            }
+        }
+        if (!whiteToMove) key ^= Zobrist.BLACK_TO_MOVE;
+        key ^= Zobrist.castlingKey(whiteKingSideCastle, whiteQueenSideCastle, blackKingSideCastle,
+                blackQueenSideCastle);
+        key ^= Zobrist.enPassentKey(enPassentSquare);
+        return key;
+    }
+
+    /**
+     * Saves the current castling rights, en passent square, half move clock and hash together with the move that is
+     * about to be played. Only allocates when the history has to grow, which does not happen in a normal game.
+     * @param m the encoded move that is about to be played
+     */
+    private void pushUndoRecord(int m) {
+        if (ply == moveHistory.length) {
+            moveHistory = Arrays.copyOf(moveHistory, ply * 2);
+            undoStates = Arrays.copyOf(undoStates, ply * 2);
+            keyHistory = Arrays.copyOf(keyHistory, ply * 2);
+            generatedMoves = Arrays.copyOf(generatedMoves, ply * 2 + 1);
+            moveLists = Arrays.copyOf(moveLists, ply * 2 + 1);
+            moveListGenerated = Arrays.copyOf(moveListGenerated, ply * 2 + 1);
+        }
+        long state = (whiteKingSideCastle ? WHITE_KING_SIDE_CASTLE_BIT : 0) |
+                (whiteQueenSideCastle ? WHITE_QUEEN_SIDE_CASTLE_BIT : 0) |
+                (blackKingSideCastle ? BLACK_KING_SIDE_CASTLE_BIT : 0) |
+                (blackQueenSideCastle ? BLACK_QUEEN_SIDE_CASTLE_BIT : 0);
+        state |= (long) enPassentSquare << EN_PASSENT_SHIFT;
+        state |= (long) Move.getCapturedPiece(m) << CAPTURED_PIECE_SHIFT;
+        state |= (long) halfMoveClock << HALF_MOVE_CLOCK_SHIFT;
+        moveHistory[ply] = m;
+        undoStates[ply] = state;
+        keyHistory[ply] = hashKey;
+        ply++;
+    }
+
+    /**
+     * Restores the castling rights, en passent square, half move clock and hash from the last undo record.
+     * The record itself is left in place, so the captured piece can still be read from it.
+     */
+    private void popUndoRecord() {
+        ply--;
+        long state = undoStates[ply];
+        whiteKingSideCastle = (state & WHITE_KING_SIDE_CASTLE_BIT) != 0;
+        whiteQueenSideCastle = (state & WHITE_QUEEN_SIDE_CASTLE_BIT) != 0;
+        blackKingSideCastle = (state & BLACK_KING_SIDE_CASTLE_BIT) != 0;
+        blackQueenSideCastle = (state & BLACK_QUEEN_SIDE_CASTLE_BIT) != 0;
+        enPassentSquare = (int) (state >>> EN_PASSENT_SHIFT) & 0x7f;
+        halfMoveClock = (int) (state >>> HALF_MOVE_CLOCK_SHIFT);
+        hashKey = keyHistory[ply];
+    }
+
+    /**
+     * @param index the ply of an undo record
+     * @return true if the record is of a null move
+     */
+    private boolean isNullMove(int index) {
+        return (undoStates[index] & NULL_MOVE_BIT) != 0;
+    }
+
+    /**
+     * Gets the captured piece from a packed undo state
+     * @param state the packed undo state
+     * @return the captured piece, Constants.EMPTY if none
+     */
+    private static int getCapturedPiece(long state) {
+        return (int) (state >>> CAPTURED_PIECE_SHIFT) & 0xf;
+    }
+
+    /**
+     * Gets the half move clock
+     * @return the amount of half moves since the last pawn move or capture
+     */
+    public int getHalfMoveClock() {
+        return this.halfMoveClock;
+    }
+
     /**
      * Checks if the king of the color that currently has to move is in check
      * @return true if it is, false if not
@@ -837,10 +1025,15 @@ public class Board {
 
     /**
      * Returns the last move played
-     * @return the last move played
+     * @return the last move played, null if there is none or it was a null move
      */
     public Move getLastMove() {
-        return moves.peek();
+        return ply == 0 || isNullMove(ply - 1) ? null : new Move(moveHistory[ply - 1]);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Move>[] newMovesArray(int size) {
+        return (List<Move>[]) new List<?>[size];
     }
 
     public Board copy() {
@@ -850,17 +1043,23 @@ public class Board {
             clone.mailbox[i] = Arrays.copyOf(this.mailbox[i], this.mailbox[i].length);
         }
         clone.whiteToMove = this.whiteToMove;
-        clone.whiteQueenSideCastle = (Stack<Boolean>)this.whiteQueenSideCastle.clone();
-        clone.whiteKingSideCastle = (Stack<Boolean>)this.whiteKingSideCastle.clone();
-        clone.blackQueenSideCastle = (Stack<Boolean>)this.blackQueenSideCastle.clone();
-        clone.blackKingSideCastle = (Stack<Boolean>)this.blackKingSideCastle.clone();
-        clone.enPassentSquare = (Stack<Integer>)this.enPassentSquare.clone();
-        clone.halfMoveClock = (Stack<Integer>)this.halfMoveClock.clone();
-        clone.moves = (Stack<Move>)this.moves.clone();
-        clone.fens = (Stack<String>)this.fens.clone();
-
-        clone.generator = this.generator;
-        clone.currentlyPossibleMoves = generator.getMoves(clone, clone.colorToMove());
+        clone.whiteQueenSideCastle = this.whiteQueenSideCastle;
+        clone.whiteKingSideCastle = this.whiteKingSideCastle;
+        clone.blackQueenSideCastle = this.blackQueenSideCastle;
+        clone.blackKingSideCastle = this.blackKingSideCastle;
+        clone.enPassentSquare = this.enPassentSquare;
+        clone.halfMoveClock = this.halfMoveClock;
+        clone.hashKey = this.hashKey;
+        clone.ply = this.ply;
+        clone.plyOffset = this.plyOffset;
+        clone.moveHistory = Arrays.copyOf(this.moveHistory, this.moveHistory.length);
+        clone.undoStates = Arrays.copyOf(this.undoStates, this.undoStates.length);
+        clone.keyHistory = Arrays.copyOf(this.keyHistory, this.keyHistory.length);
+
+        clone.generatedMoves = newMovesArray(this.generatedMoves.length);
+        clone.moveLists = new MoveList[this.moveLists.length];
+        clone.moveListGenerated = new boolean[this.moveListGenerated.length];
+        // the clone keeps its own generator, the generator has buffers so it cannot be shared between threads
         return clone;
     }
 }
@@ -188,4 +188,57 @@ public class Constants {
             0x000000000000c040L, 0x000000000000e0a0L, 0x0000000000007050L, 0x0000000000003828L,
             0x0000000000001c14L, 0x0000000000000e0aL, 0x0000000000000705L, 0x0000000000000302L
     };
+
+    public static final long[] ROOK_MAGICS = new long[] { //magic numbers for the rook attack lookups, 0 indexed by the square.
+                                                          //found once with a search over sparse random numbers
+            0x0248450040841422L, 0x40000800b1100204L, 0x8801000400020803L, 0x8001000288001005L,
+            0x0005001001200409L, 0x21080d0040200011L, 0x4083410020948206L, 0x0001002810408001L,
+
+            0x000000a044010200L, 0xa104102e38050400L, 0x0000040080020080L, 0x2000040028008180L,
+            0x5840201200084200L, 0x0108450020001100L, 0x0488200040049080L, 0x0000284880010100L,
+
+            0x8040208406420009L, 0x0802020810140011L, 0x0004000810020200L, 0x0104080004008080L,
+            0x4002002010420008L, 0x0820040200101001L, 0x0020008040008030L, 0x1200802040008000L,
+
+            0x0201204102001084L, 0x0a4a000102000884L, 0x1084000802020010L, 0x2402110005000800L,
+            0x0100401202002008L, 0x0086401082002600L, 0x121004200a404002L, 0x4020004000808000L,
+
+            0x2004104200040081L, 0x8800028400011058L, 0x000a000280800400L, 0x0408080080040080L,
+            0x0028008480100008L, 0x1020004100102104L, 0x8840400140201000L, 0x0080004240002010L,
+
+            0x1120020000804401L, 0x0080040010080102L, 0x0024808002000400L, 0x6004050008001100L,
+            0x0684848008001000L, 0x0030008020041080L, 0x8480928020044000L, 0x1080004000200041L,
+
+            0x0012800040800100L, 0x0000800100020080L, 0x0440800200040180L, 0x000200050a002090L,
+            0x1841000821001000L, 0x0021002001004010L, 0x0000400020100044L, 0x0000802040008004L,
+
+            0x008004c029001080L, 0x0400120128040890L, 0x0200040801900200L, 0x0200082044904200L,
+            0x0200041042000920L, 0x2180092000801000L, 0x084004d002402001L, 0x0880008020104000L
+    };
+
+    public static final long[] BISHOP_MAGICS = new long[] { //magic numbers for the bishop attack lookups, 0 indexed by the square
+            0x8145100c08108010L, 0x0122900418008418L, 0x02200b0910010200L, 0x0420100040050440L,
+            0x008a02010c840400L, 0x0404000212841400L, 0x0100022401084800L, 0x0082002082186000L,
+
+            0x0c10101220504080L, 0x00844410020a0002L, 0x0109102001010a00L, 0x0008040810240080L,
+            0xa482140084040688L, 0x1610804200901024L, 0x0200440208020000L, 0x0804980188200020L,
+
+            0x0021020081040200L, 0x8010070828a11504L, 0x2a44008082005101L, 0x1590600140402400L,
+            0x1201084200840800L, 0x4204220030080200L, 0x0900420820100440L, 0x02080452a8042008L,
+
+            0x2004040820009080L, 0x0624046c00038089L, 0x2004080a00088880L, 0x00004c0400044100L,
+            0x11220100400c0040L, 0xa114008810264200L, 0x2004210821041021L, 0x0402304000d07200L,
+
+            0x00204080004a0800L, 0x0002009042109002L, 0x22891200250080c5L, 0x081084802400200cL,
+            0x2012080002081100L, 0x6008020041120200L, 0x800278a010050800L, 0x2029200040040121L,
+
+            0x0142121042009c0aL, 0x0006051401012808L, 0x0100804410040101L, 0x0051002820080620L,
+            0x0418002c04101040L, 0x01080a3000822008L, 0x0003004802081200L, 0x0605814820042c00L,
+
+            0x0002021101280240L, 0x0029040202100500L, 0x060052056c204441L, 0x1008040308600000L,
+            0x1105209081044004L, 0x0580110802084800L, 0x008102820e440500L, 0x000021a004009880L,
+
+            0x000110480a101000L, 0x0016620220200820L, 0x20050188c0000020L, 0x0141114006000430L,
+            0x4008048111200000L, 0x1004010202044018L, 0x009004a800842104L, 0x408290102c848082L
+    };
 }
@@ -30,28 +30,35 @@ public class Move {
 //      15  	1       	1   	1       	1       	queen-promo capture
 
     public Move(int from, int to, int movingPiece, int capturedPiece, int flags) {
-        this.move = (from & 0xff) << 20 | (to & 0xff) << 12 |
-                (movingPiece & 0xf) << 8 | (capturedPiece & 0xf) << 4| (flags & 0xf);
+        this.move = encode(from, to, movingPiece, capturedPiece, flags);
     }
 
     public Move(int move) {
         this.move = move;
     }
 
+    /**
+     * Gets the binary encoding of this move, as described above
+     * @return the move encoded in an int
+     */
+    public int getEncoded() {
+        return this.move;
+    }
+
     public int getTo() {
-        return (this.move & 0xff000) >>> 12;
+        return getTo(this.move);
     }
 
     public int getFrom() {
-        return (this.move & 0xff00000) >>> 20;
+        return getFrom(this.move);
     }
 
     public int getMovingPiece() {
-        return (this.move & 0xf00) >>> 8;
+        return getMovingPiece(this.move);
     }
 
     public int getCapturedPiece() {
-        return (this.move & 0xf0) >>> 4;
+        return getCapturedPiece(this.move);
     }
 
     /**
@@ -59,7 +66,68 @@ public class Move {
      * @return
      */
     public int getPromotionPiece() {
-        int flags = getFlags();
+        return getPromotionPiece(this.move);
+    }
+
+    public int getFlags() {
+        return getFlags(this.move);
+    }
+
+    public boolean isPromotion() {
+        return isPromotion(this.move);
+    }
+
+    public boolean isCapture() {
+        return isCapture(this.move);
+    }
+
+    public boolean isEnPassent() {
+        return isEnPassent(this.move);
+    }
+
+    public boolean isKingCastle() {
+        return isKingCastle(this.move);
+    }
+
+    public boolean isQueenCastle() {
+        return isQueenCastle(this.move);
+    }
+
+    // The same accessors on a move that is only stored as its int encoding, so the move generator and the search
+    // do not have to create a Move object for every move.
+
+    /**
+     * Encodes a move in an int, as described at the top of this class
+     * @return the encoded move
+     */
+    public static int encode(int from, int to, int movingPiece, int capturedPiece, int flags) {
+        return (from & 0xff) << 20 | (to & 0xff) << 12 |
+                (movingPiece & 0xf) << 8 | (capturedPiece & 0xf) << 4| (flags & 0xf);
+    }
+
+    public static int getTo(int move) {
+        return (move & 0xff000) >>> 12;
+    }
+
+    public static int getFrom(int move) {
+        return (move & 0xff00000) >>> 20;
+    }
+
+    public static int getMovingPiece(int move) {
+        return (move & 0xf00) >>> 8;
+    }
+
+    public static int getCapturedPiece(int move) {
+        return (move & 0xf0) >>> 4;
+    }
+
+    /**
+     * WATCH OUT, DOES NOT CONTAIN THE COLOR. THIS SHOULD BE RETRIEVED FROM THE MOVINGPIECE
+     * @param move the encoded move
+     * @return the promotion piece without color, Constants.EMPTY if it is not a promotion
+     */
+    public static int getPromotionPiece(int move) {
+        int flags = getFlags(move);
         switch(flags) {
             case 8:
             case 12:
@@ -78,28 +146,28 @@ public class Move {
         }
     }
 
-    public int getFlags() {
-        return this.move & 0xf;
+    public static int getFlags(int move) {
+        return move & 0xf;
     }
 
-    public boolean isPromotion() {
-        return (this.getFlags() & 0b1000) != 0;
+    public static boolean isPromotion(int move) {
+        return (getFlags(move) & 0b1000) != 0;
     }
 
-    public boolean isCapture() {
-        return (this.getFlags() & 0b0100) != 0;
+    public static boolean isCapture(int move) {
+        return (getFlags(move) & 0b0100) != 0;
     }
 
-    public boolean isEnPassent() {
-        return this.getFlags() == 5;
+    public static boolean isEnPassent(int move) {
+        return getFlags(move) == 5;
     }
 
-    public boolean isKingCastle() {
-        return this.getFlags() == 2;
+    public static boolean isKingCastle(int move) {
+        return getFlags(move) == 2;
     }
 
-    public boolean isQueenCastle() {
-        return this.getFlags() == 3;
+    public static boolean isQueenCastle(int move) {
+        return getFlags(move) == 3;
     }
 
     @Override
@@ -0,0 +1,72 @@
+package state;
+
+/**
+ * Tables of the squares connecting two squares, indexed by both squares (0 indexed, a1 = 0, h8 = 63) as in the attack
+ * arrays in Constants. They are filled once when the class is loaded, so afterwards every lookup is a single array
+ * access instead of walking or splitting a ray.
+ */
+public class Rays {
+    // The squares strictly between two squares on the same rank, file or diagonal, 0 if they are not on one line
+    // or next to each other.
+    public static final long[][] BETWEEN = new long[64][64];
+    // The whole rank, file or diagonal through two squares, from edge to edge and including both squares.
+    // 0 if they are not on one line.
+    public static final long[][] LINE = new long[64][64];
+
+    static {
+        for (int from = 0; from < 64; from++) {
+            for (int to = 0; to < 64; to++) {
+                if (from == to) continue;
+                int dx = Integer.signum(to % 8 - from % 8);
+                int dy = Integer.signum(to / 8 - from / 8);
+                boolean aligned = dx == 0 || dy == 0 || Math.abs(to % 8 - from % 8) == Math.abs(to / 8 - from / 8);
+                if (!aligned) continue;
+
+                // walk from one square towards the other
+                long between = 0L;
+                int x = from % 8 + dx;
+                int y = from / 8 + dy;
+                while (y * 8 + x != to) {
+                    between |= square(x, y);
+                    x += dx;
+                    y += dy;
+                }
+                BETWEEN[from][to] = between;
+
+                // walk both ways from the first square until the edge of the board
+                long line = square(from % 8, from / 8);
+                for (int direction = -1; direction <= 1; direction += 2) {
+                    x = from % 8 + direction * dx;
+                    y = from / 8 + direction * dy;
+                    while (x >= 0 && x < 8 && y >= 0 && y < 8) {
+                        line |= square(x, y);
+                        x += direction * dx;
+                        y += direction * dy;
+                    }
+                }
+                LINE[from][to] = line;
+            }
+        }
+    }
+
+    /**
+     * The bitboard of a single square
+     * @param x the file, 0 indexed
+     * @param y the rank, 0 indexed
+     * @return a bitboard with only this square set
+     */
+    private static long square(int x, int y) {
+        return 1L << (63 - (y * 8 + x));
+    }
+
+    /**
+     * Checks if three squares lie on one rank, file or diagonal
+     * @param a a square, 0 indexed
+     * @param b another square, 0 indexed, different from a
+     * @param c the square to check, 0 indexed
+     * @return true if c is on the line through a and b
+     */
+    public static boolean aligned(int a, int b, int c) {
+        return (LINE[a][b] & (1L << (63 - c))) != 0;
+    }
+}
@@ -0,0 +1,70 @@
+package state;
+
+import java.util.Random;
+
+/**
+ * The random keys used to calculate the Zobrist hash of a position. The hash is the xor of the keys of all the
+ * pieces on their squares, the side to move, the castling rights and the file of the en passent square.
+ * Because xor is its own inverse, the hash can be updated incrementally when a move is made.
+ */
+public class Zobrist {
+    private static final long SEED = 0x5DEECE66DL; // a fixed seed, so the keys are the same in every run
+
+    public static final long[][] PIECE_SQUARE = new long[14][64]; // indexed by piecetype and the square (0 indexed)
+    public static final long BLACK_TO_MOVE;
+    public static final long WHITE_KING_SIDE_CASTLE;
+    public static final long WHITE_QUEEN_SIDE_CASTLE;
+    public static final long BLACK_KING_SIDE_CASTLE;
+    public static final long BLACK_QUEEN_SIDE_CASTLE;
+    public static final long[] EN_PASSENT_FILE = new long[8]; // indexed by the file (0 indexed)
+
+    static {
+        Random random = new Random(SEED);
+        for (int piece = 0; piece < PIECE_SQUARE.length; piece++) {
+            if (piece == Constants.EMPTY || piece == 1) continue; // 0 and 1 are not used as a piecetype
+            for (int square = 0; square < 64; square++) {
+                PIECE_SQUARE[piece][square] = random.nextLong();
+            }
+        }
+        BLACK_TO_MOVE = random.nextLong();
+        WHITE_KING_SIDE_CASTLE = random.nextLong();
+        WHITE_QUEEN_SIDE_CASTLE = random.nextLong();
+        BLACK_KING_SIDE_CASTLE = random.nextLong();
+        BLACK_QUEEN_SIDE_CASTLE = random.nextLong();
+        for (int file = 0; file < 8; file++) {
+            EN_PASSENT_FILE[file] = random.nextLong();
+        }
+    }
+
+    /**
+     * Gets the key of a piece on a square
+     * @param piece the piecetype (Constants.WHITE_ROOK etc)
+     * @param square the square, 1 indexed
+     * @return the key of this piece on this square
+     */
+    public static long pieceKey(int piece, int square) {
+        return PIECE_SQUARE[piece][square - 1];
+    }
+
+    /**
+     * Gets the combined key of a set of castling rights
+     * @return the xor of the keys of all the castling rights that are still available
+     */
+    public static long castlingKey(boolean whiteKingSide, boolean whiteQueenSide, boolean blackKingSide, boolean blackQueenSide) {
+        long key = 0L;
+        if (whiteKingSide) key ^= WHITE_KING_SIDE_CASTLE;
+        if (whiteQueenSide) key ^= WHITE_QUEEN_SIDE_CASTLE;
+        if (blackKingSide) key ^= BLACK_KING_SIDE_CASTLE;
+        if (blackQueenSide) key ^= BLACK_QUEEN_SIDE_CASTLE;
+        return key;
+    }
+
+    /**
+     * Gets the key of an en passent square
+     * @param enPassentSquare the en passent square, 1 indexed. 0 if there is no en passent square
+     * @return the key of the file of the en passent square, 0 if there is none
+     */
+    public static long enPassentKey(int enPassentSquare) {
+        return enPassentSquare == 0 ? 0L : EN_PASSENT_FILE[(enPassentSquare - 1) % 8];
+    }
+}
@@ -4,10 +4,12 @@ import state.Bitboard;
 import state.Board;
 import state.Constants;
 import state.Move;
+import state.Rays;
+import moveGenerator.MoveList;
 import org.junit.jupiter.api.Test;
 
 import java.lang.reflect.Field;
-import java.util.Stack;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -400,14 +402,13 @@ class BoardTest {
 
     @Test
     void enPassentSquare() {
-        Stack<Integer> enPassentSquare = new Stack<>();
-        enPassentSquare.push(10); //b2
+        int enPassentSquare = 10; //b2
         Board b = new Board();
         Field enPassentSquareField;
         try {
             enPassentSquareField = b.getClass().getDeclaredField("enPassentSquare");
             enPassentSquareField.setAccessible(true);
-            enPassentSquareField.set(b, enPassentSquare); // set the field in the board variable
+            enPassentSquareField.setInt(b, enPassentSquare); // set the field in the board variable
         } catch (NoSuchFieldException | IllegalAccessException e) {
             e.printStackTrace();
         }
@@ -416,14 +417,13 @@ class BoardTest {
 
     @Test
     void noEnPassentSquare() {
-        Stack<Integer> enPassentSquare = new Stack<>();
-        enPassentSquare.push(0); //no en passent square
+        int enPassentSquare = 0; //no en passent square
         Board b = new Board();
         Field enPassentSquareField;
         try {
             enPassentSquareField = b.getClass().getDeclaredField("enPassentSquare");
             enPassentSquareField.setAccessible(true);
-            enPassentSquareField.set(b, enPassentSquare); // set the field in the board variable
+            enPassentSquareField.setInt(b, enPassentSquare); // set the field in the board variable
         } catch (NoSuchFieldException | IllegalAccessException e) {
             e.printStackTrace();
         }
@@ -635,30 +635,191 @@ class BoardTest {
         assertEquals(0x000000000000fc00, bitboards[Constants.BLACK_PAWN]);
     }
 
+    /**
+     * The incrementally updated hash should be the same as the hash of the same position read from a FEN
+     * 1. e4 d5
+     * 2. exd5
+     */
+    @Test
+    void hashKeyIncremental() {
+        Board b = new Board();
+        b.makeMove(new Move(13, 29, Constants.WHITE_PAWN, Constants.EMPTY, 1));
+        b.makeMove(new Move(52, 36, Constants.BLACK_PAWN, Constants.EMPTY, 1));
+        b.makeMove(new Move(29, 36, Constants.WHITE_PAWN, Constants.BLACK_PAWN, 4));
+
+        Board fromFen = new Board(b.toString());
+        assertEquals(fromFen.getHashKey(), b.getHashKey());
+    }
+
+    /**
+     * Unmaking a move should restore the previous hash
+     */
     @Test
-    void splitRayTest() {
-        long ray =      0xff00000000000000L;
-        long split =    0x1000000000000000L;
-        long[] splitted = Bitboard.splitRay(ray, split);
-        assertEquals(0xe000000000000000L, splitted[1]);
-        assertEquals(0x0f00000000000000L, splitted[0]);
+    void hashKeyUnMakeMove() {
+        Board b = new Board("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1");
+        long initialKey = b.getHashKey();
+        Move castle = new Move(5, 7, Constants.WHITE_KING, Constants.EMPTY, 2);
+        b.makeMove(castle);
+        assertNotEquals(initialKey, b.getHashKey());
+        assertEquals(new Board(b.toString()).getHashKey(), b.getHashKey());
+        b.unMakeMove(castle);
+        assertEquals(initialKey, b.getHashKey());
     }
 
+    /**
+     * The same position reached by different move orders should have the same hash
+     * 1. Nf3 Nf6 2. Nc3 and 1. Nc3 Nf6 2. Nf3
+     */
     @Test
-    void splitRayDiagonal() {
-        long ray =      0x8040201008040201L; // long normal diagonal
-        long split =   0x0000200000000000L; //c3
-        long[] splitted = Bitboard.splitRay(ray, split);
-        assertEquals(0x8040000000000000L, splitted[1]);
-        assertEquals(0x0000001008040201L, splitted[0]);
+    void hashKeyTransposition() {
+        Board first = new Board();
+        first.makeMove(new Move(7, 22, Constants.WHITE_KNIGHT, Constants.EMPTY, 0));
+        first.makeMove(new Move(63, 46, Constants.BLACK_KNIGHT, Constants.EMPTY, 0));
+        first.makeMove(new Move(2, 19, Constants.WHITE_KNIGHT, Constants.EMPTY, 0));
+
+        Board second = new Board();
+        second.makeMove(new Move(2, 19, Constants.WHITE_KNIGHT, Constants.EMPTY, 0));
+        second.makeMove(new Move(63, 46, Constants.BLACK_KNIGHT, Constants.EMPTY, 0));
+        second.makeMove(new Move(7, 22, Constants.WHITE_KNIGHT, Constants.EMPTY, 0));
+
+        assertEquals(first.getHashKey(), second.getHashKey());
     }
 
+    /**
+     * Moving the knights back and forth twice repeats the initial position three times
+     */
     @Test
-    void splitEdge() {
-        long ray =      0xff00000000000000L;
-        long split =    0x8000000000000000L;
-        long[] splitted = Bitboard.splitRay(ray, split);
-        assertEquals(0x0000000000000000L, splitted[1]);
-        assertEquals(0x7f00000000000000L, splitted[0]);
+    void threefoldRepetition() {
+        Board b = new Board();
+        for (int i = 0; i < 2; i++) {
+            assertFalse(b.threefoldRepetition());
+            b.makeMove(new Move(7, 22, Constants.WHITE_KNIGHT, Constants.EMPTY, 0));
+            b.makeMove(new Move(63, 46, Constants.BLACK_KNIGHT, Constants.EMPTY, 0));
+            b.makeMove(new Move(22, 7, Constants.WHITE_KNIGHT, Constants.EMPTY, 0));
+            b.makeMove(new Move(46, 63, Constants.BLACK_KNIGHT, Constants.EMPTY, 0));
+        }
+        assertTrue(b.threefoldRepetition());
+    }
+
+    /**
+     * The move count of a FEN with black to move should only increase after black has moved
+     */
+    @Test
+    void moveCountBlackToMove() {
+        Board b = new Board("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1");
+        Move m = new Move(52, 36, Constants.BLACK_PAWN, Constants.EMPTY, 1);
+        b.makeMove(m);
+        assertEquals("rnbqkbnr/ppp1pppp/8/3p4/4P3/8/PPPP1PPP/RNBQKBNR w KQkq d6 0 2", b.toString());
+        b.unMakeMove(m);
+        assertEquals("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1", b.toString());
+    }
+
+    /**
+     * Only the last move played can be undone
+     */
+    @Test
+    void unMakeWrongMove() {
+        Board b = new Board();
+        Move m = new Move(2, 17, Constants.WHITE_KNIGHT, Constants.EMPTY, 0);
+        assertThrows(IllegalArgumentException.class, () -> b.unMakeMove(m));
+        b.makeMove(m);
+        assertThrows(IllegalArgumentException.class, () -> b.unMakeMove(new Move(7, 22, Constants.WHITE_KNIGHT, Constants.EMPTY, 0)));
+        b.unMakeMove(m);
+        assertEquals("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1", b.toString());
+    }
+
+    /**
+     * The moves are generated once per position, unmaking a move returns to the moves of the previous position
+     */
+    @Test
+    void movesCachedPerPly() {
+        Board b = new Board();
+        List<Move> initialMoves = b.getMoves();
+        assertEquals(20, initialMoves.size());
+        assertSame(initialMoves, b.getMoves());
+
+        Move m = new Move(13, 29, Constants.WHITE_PAWN, Constants.EMPTY, 1);
+        b.makeMove(m);
+        List<Move> blackMoves = b.getMoves();
+        assertEquals(20, blackMoves.size());
+        assertNotSame(initialMoves, blackMoves);
+
+        b.unMakeMove(m);
+        assertSame(initialMoves, b.getMoves());
+    }
+
+    /**
+     * The encoded move list contains the same moves as the list of Move objects, and encoded moves can be made directly
+     */
+    @Test
+    void moveListEncoded() {
+        Board b = new Board("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        MoveList moveList = b.getMoveList();
+        List<Move> moves = b.getMoves();
+        assertEquals(48, moveList.size());
+        assertEquals(moves.size(), moveList.size());
+        for (Move m : moves) {
+            assertTrue(moveList.contains(m.getEncoded()));
+        }
+        assertSame(moveList, b.getMoveList());
+
+        int castle = Move.encode(5, 7, Constants.WHITE_KING, Constants.EMPTY, 2);
+        assertTrue(moveList.contains(castle));
+        b.makeMove(castle);
+        assertEquals("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R4RK1 b kq - 1 1", b.toString());
+        assertEquals(castle, b.getLastMove().getEncoded());
+        b.unMakeMove(castle);
+        assertEquals("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1", b.toString());
+        assertSame(moveList, b.getMoveList());
+    }
+
+    @Test
+    void raysBetweenAndLine() {
+        // a1 (0) and h8 (63) on the long diagonal
+        assertEquals(0x0040201008040200L, Rays.BETWEEN[0][63]);
+        assertEquals(0x8040201008040201L, Rays.LINE[0][63]);
+        assertEquals(Rays.BETWEEN[0][63], Rays.BETWEEN[63][0]);
+        // a1 (0) and a4 (24) on the a file
+        assertEquals(0x0080800000000000L, Rays.BETWEEN[0][24]);
+        assertEquals(0x8080808080808080L, Rays.LINE[0][24]);
+        // e1 (4) and f1 (5) are next to each other
+        assertEquals(0L, Rays.BETWEEN[4][5]);
+        assertEquals(Constants.FIRST_RANK, Rays.LINE[4][5]);
+        // a knight jump is not on a line
+        assertEquals(0L, Rays.BETWEEN[1][18]);
+        assertEquals(0L, Rays.LINE[1][18]);
+        assertTrue(Rays.aligned(0, 63, 27)); // d4
+        assertFalse(Rays.aligned(0, 63, 28)); // e4
+    }
+
+    /**
+     * A null move only passes the turn and clears the en passent square, unmaking it restores the position
+     */
+    @Test
+    void nullMove() {
+        String fen = "rnbqkbnr/ppp1pppp/8/8/3pP3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 3";
+        Board b = new Board(fen);
+        long key = b.getHashKey();
+        MoveList moveList = b.getMoveList();
+        b.makeNullMove();
+        assertTrue(b.isWhiteToMove());
+        assertEquals(0, b.getEnPassentSquare());
+        assertEquals(new Board("rnbqkbnr/ppp1pppp/8/8/3pP3/8/PPPP1PPP/RNBQKBNR w KQkq - 0 3").getHashKey(),
+                b.getHashKey());
+        assertFalse(b.isPotentialDraw());
+        assertThrows(IllegalArgumentException.class, () -> b.unMakeMove(b.getMoveList().get(0)));
+        assertThrows(IllegalArgumentException.class, () -> b.unMakeMove(0)); // the null move is no encoded move
+        assertNull(b.getLastMove());
+        b.unmakeNullMove();
+        assertEquals(fen, b.toString());
+        assertEquals(key, b.getHashKey());
+        assertSame(moveList, b.getMoveList());
+        assertThrows(IllegalArgumentException.class, b::unmakeNullMove);
+        int m = moveList.get(0);
+        b.makeMove(m);
+        assertEquals(m, b.getLastMove().getEncoded());
+        assertThrows(IllegalArgumentException.class, b::unmakeNullMove);
+        b.unMakeMove(m);
+        assertEquals(fen, b.toString());
     }
-}
\ No newline at end of file
+}
@@ -1,152 +1,270 @@
 package tests;
 
 import moveGenerator.LegalGenerator;
+import moveGenerator.MoveList;
+import moveGenerator.SliderAttacks;
 import org.junit.jupiter.api.Test;
+import state.Board;
+import state.Constants;
+import state.Move;
+import state.Rays;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.util.List;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 class GeneratorTest {
 
+    /**
+     * The rays from other squares to d3: b3 reaches it through c3 and d5 through d4, e3 is next to it and c5 is on no
+     * line with it
+     */
     @Test
-    void axisAlignedFloodFillAttack() {
-        LegalGenerator g = new LegalGenerator();
-        Method toTest = null;
-        try {
-            toTest = g.getClass().getDeclaredMethod("getAxisAlignedAttackSquares", long.class, long.class);
-            toTest.setAccessible(true);
-        } catch (NoSuchMethodException e) {
-            e.printStackTrace();
-        }
-        assert toTest != null;
-        long pieces = 0x0000002000000000L; // c4
-        try {
-            assertEquals(0x202020ff20202020L & ~pieces, toTest.invoke(g, pieces, pieces));
-        } catch (IllegalAccessException | InvocationTargetException e) {
-            e.printStackTrace();
+    void raysToSquare() {
+        int square = 19; // d3
+        assertEquals(0x0000200000000000L, Rays.BETWEEN[17][square]); // b3, through c3
+        assertEquals(0L, Rays.BETWEEN[20][square]); // e3
+        assertEquals(0x0000001000000000L, Rays.BETWEEN[35][square]); // d5, through d4
+        assertEquals(0L, Rays.BETWEEN[34][square]); // c5
+        assertEquals(0L, Rays.LINE[34][square]);
+        assertTrue(Rays.aligned(17, square, 23)); // h3 is on the rank of b3 and d3
+        assertFalse(Rays.aligned(35, square, 23));
+    }
+
+    @Test
+    void sliderAttacksSetwiseIncludingBlocker() {
+        long piece = 0x0000002000000000L; // c4
+        long occupied = 0x0000302200000000L; // c4, c3, d3, g4
+        for (String name : new String[]{"magic", "hyperbola", "koggestone"}) {
+            SliderAttacks sliderAttacks = SliderAttacks.byName(name);
+            assertEquals(0x0488500050880402L, sliderAttacks.bishopAttacksSetwise(piece, piece), name);
+            assertEquals(0x0080500050880402L, sliderAttacks.bishopAttacksSetwise(piece, occupied), name);
+            assertEquals(0x202020ff20202020L & ~piece, sliderAttacks.rookAttacksSetwise(piece, piece), name);
+            assertEquals(0x000020de20202020L & ~piece, sliderAttacks.rookAttacksSetwise(piece, occupied), name);
         }
+    }
+
+    @Test
+    void magicRookAttacks() {
+        int square = 26; // c4
         long occupied = 0x0000302200000000L; // c4, c3, d3, g4
-        try {
-            assertEquals(0x000000fc20202020L & ~pieces, toTest.invoke(g, pieces, occupied));
-        } catch (IllegalAccessException | InvocationTargetException e) {
-            e.printStackTrace();
+        assertEquals(0x000020de20202020L & ~0x0000002000000000L, LegalGenerator.rookAttacks(square, occupied));
+        assertEquals(0x202020ff20202020L & ~0x0000002000000000L, LegalGenerator.rookAttacks(square, 0L));
+    }
+
+    @Test
+    void magicBishopAttacks() {
+        int square = 26; // c4
+        long occupied = 0x0000302200000000L; // c4, c3, d3, g4
+        assertEquals(0x0080500050880402L, LegalGenerator.bishopAttacks(square, occupied));
+        assertEquals(0x0488500050880402L, LegalGenerator.bishopAttacks(square, 0L));
+    }
+
+    /**
+     * Compares every slider attack implementation with a slow reference for random occupancies on every square
+     */
+    @Test
+    void sliderAttacksMatchReference() {
+        for (String name : new String[]{"magic", "hyperbola", "koggestone"}) {
+            SliderAttacks sliderAttacks = SliderAttacks.byName(name);
+            Random random = new Random(42);
+            for (int square = 0; square < 64; square++) {
+                long slider = 1L << (63 - square);
+                long fileAndRank = Constants.FILE_MASK[square % 8] | Constants.RANK_MASK[square / 8];
+                long diagonals = Constants.DIAGONAL_MASK[square] | Constants.ANTIDIAGONAL_MASK[square];
+                for (int i = 0; i < 200; i++) {
+                    long occupied = (random.nextLong() & random.nextLong()) | slider;
+                    assertEquals(lineAttacks(slider, occupied, fileAndRank), sliderAttacks.rookAttacks(square, occupied), name);
+                    assertEquals(lineAttacks(slider, occupied, diagonals), sliderAttacks.bishopAttacks(square, occupied), name);
+                }
+            }
         }
-        pieces |= 0x0000000008000000L; // add rook on e5 to test two rooks
-        try {
-            assertEquals(0x080808fcff282828L & ~pieces, toTest.invoke(g, pieces, occupied));
-        } catch (IllegalAccessException | InvocationTargetException e) {
-            e.printStackTrace();
+    }
+
+    @Test
+    void sliderAttacksSetwise() {
+        long rooks = 0x0000002008000000L; // c4 and e5
+        long occupied = 0x0000302200000000L | rooks; // c3, d3, g4
+        for (String name : new String[]{"magic", "hyperbola", "koggestone"}) {
+            SliderAttacks sliderAttacks = SliderAttacks.byName(name);
+            assertEquals(0x080828def7282828L & ~rooks, sliderAttacks.rookAttacksSetwise(rooks, occupied), name);
         }
+        assertThrows(IllegalArgumentException.class, () -> SliderAttacks.byName("unknown"));
+    }
+
+    @Test
+    void pinnedPieces() {
+        // The rook on e2 is pinned by the rook on e8, it can only move along the e file
+        Board b = new Board("4r2k/8/8/8/8/8/4R3/4K3 w - - 0 1");
+        List<Move> moves = b.getMoves();
+        assertEquals(10, moves.size());
+        assertTrue(moves.stream().filter(m -> m.getFrom() == 13).allMatch(m -> m.getTo() % 8 == 5));
+
+        // A pinned bishop on the file of the king has no moves
+        b = new Board("4r2k/8/8/8/8/8/4B3/4K3 w - - 0 1");
+        assertEquals(4, b.getMoves().size());
+
+        // A pinned queen can capture the pinner
+        b = new Board("7k/8/8/8/8/2b5/3Q4/4K3 w - - 0 1");
+        moves = b.getMoves();
+        assertEquals(5, moves.size());
+        assertEquals(1, moves.stream().filter(m -> m.getFrom() == 12 && m.getTo() == 19).count());
     }
 
     @Test
-    void diagonalFloodFillAttack() {
+    void enPassentDiscoveredCheck() {
+        // Capturing en passent would remove both pawns from the rank of the king and expose it to the rook
+        Board b = new Board("8/8/8/KPp4r/8/8/8/7k w - c6 0 1");
+        assertEquals(4, b.getMoves().size());
+        assertTrue(b.getMoves().stream().noneMatch(m -> m.getTo() == 43));
+
+        // Without the rook, the en passent capture is legal
+        b = new Board("8/8/8/KPp5/8/8/8/7k w - c6 0 1");
+        assertTrue(b.getMoves().stream().anyMatch(m -> m.getTo() == 43));
+    }
+
+    @Test
+    void pawnMoves() {
+        // black promotes on a1 and c1 and captures the knight on b1 with both pawns, every time to four pieces
+        Board b = new Board("4k3/8/8/8/8/8/p1p5/1N2K3 b - - 0 1");
+        List<Move> moves = b.getMoves();
+        assertEquals(21, moves.size());
+        assertEquals(16, moves.stream().filter(Move::isPromotion).count());
+        assertEquals(8, moves.stream().filter(m -> m.isPromotion() && m.isCapture()).count());
+
+        // the pawn on a2 is blocked, the pawn on c2 can push once or twice
+        b = new Board("4k3/8/8/8/8/p7/P1P5/4K3 w - - 0 1");
+        moves = b.getMoves();
+        assertEquals(7, moves.size());
+        assertTrue(moves.stream().anyMatch(m -> m.getFrom() == 11 && m.getTo() == 27 && m.getFlags() == 1));
+        assertTrue(moves.stream().noneMatch(m -> m.getFrom() == 9));
+    }
+
+    @Test
+    void capturesAndQuiets() {
+        Board b = new Board("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
         LegalGenerator g = new LegalGenerator();
-        Method toTest = null;
-        try {
-            toTest = g.getClass().getDeclaredMethod("getDiagonalAttackSquares", long.class, long.class);
-            toTest.setAccessible(true);
-        } catch (NoSuchMethodException e) {
-            e.printStackTrace();
-        }
-        assert toTest != null;
-        long pieces = 0x0000002000000000L; // c4
-        try {
-            assertEquals(0x0488500050880402L, toTest.invoke(g, pieces, pieces));
-        } catch (IllegalAccessException | InvocationTargetException e) {
-            e.printStackTrace();
+        MoveList all = new MoveList();
+        MoveList captures = new MoveList();
+        MoveList quiets = new MoveList();
+        g.generateMoves(b, Constants.WHITE, all);
+        g.generateCaptures(b, Constants.WHITE, captures);
+        g.generateQuiets(b, Constants.WHITE, quiets);
+        assertEquals(48, all.size());
+        assertEquals(8, captures.size());
+        assertEquals(40, quiets.size());
+        for (int i = 0; i < captures.size(); i++) {
+            assertTrue(Move.isCapture(captures.get(i)));
+            assertTrue(all.contains(captures.get(i)));
         }
-        long occupied = 0x0000302200000000L; // c4, c3, d3, g4
-        try {
-            assertEquals(0x0080400050880402L & ~pieces, toTest.invoke(g, pieces, occupied));
-        } catch (IllegalAccessException | InvocationTargetException e) {
-            e.printStackTrace();
+        for (int i = 0; i < quiets.size(); i++) {
+            assertFalse(Move.isCapture(quiets.get(i)) || Move.isPromotion(quiets.get(i)));
+            assertTrue(all.contains(quiets.get(i)));
         }
+
+        // a promotion without a capture is generated with the captures
+        b = new Board("7k/3P4/8/8/8/8/8/K7 w - - 0 1");
+        g.generateCaptures(b, Constants.WHITE, captures);
+        assertEquals(4, captures.size());
+        g.generateQuiets(b, Constants.WHITE, quiets);
+        assertEquals(3, quiets.size());
     }
 
     @Test
-    void diagonalAttacksIncludingBlocker() {
+    void evasions() {
+        // the rook on e8 checks the king, the knight and the bishop can block it or the king can move away.
+        // The queen on d2 is pinned by the bishop on b4 and cannot help.
+        Board b = new Board("k3r3/8/8/8/1b3N2/8/3Q1PB1/4K3 w - - 0 1");
         LegalGenerator g = new LegalGenerator();
-        Method toTest = null;
-        try {
-            toTest = g.getClass().getDeclaredMethod("getDiagonalAttackSquaresIncludingBlocked",
-                    long.class, long.class);
-            toTest.setAccessible(true);
-        } catch (NoSuchMethodException e) {
-            e.printStackTrace();
-        }
-        assert toTest != null;
-        long pieces = 0x0000002000000000L; // c4
-        try {
-            assertEquals(0x0488500050880402L, toTest.invoke(g, pieces, pieces));
-        } catch (IllegalAccessException | InvocationTargetException e) {
-            e.printStackTrace();
-        }
-        long occupied = 0x0000302200000000L; // c4, c3, d3, g4
-        try {
-            assertEquals(0x0080500050880402L, toTest.invoke(g, pieces, occupied));
-        } catch (IllegalAccessException | InvocationTargetException e) {
-            e.printStackTrace();
+        MoveList evasions = new MoveList();
+        g.generateEvasions(b, Constants.WHITE, evasions);
+        MoveList all = new MoveList();
+        g.generateMoves(b, Constants.WHITE, all);
+        assertEquals(5, evasions.size());
+        assertEquals(all.size(), evasions.size());
+        assertTrue(evasions.contains(Move.encode(30, 13, Constants.WHITE_KNIGHT, Constants.EMPTY, 0))); // Ne2
+        assertTrue(evasions.contains(Move.encode(30, 45, Constants.WHITE_KNIGHT, Constants.EMPTY, 0))); // Ne6
+        assertTrue(evasions.contains(Move.encode(15, 29, Constants.WHITE_BISHOP, Constants.EMPTY, 0))); // Be4
+        assertTrue(evasions.contains(Move.encode(5, 4, Constants.WHITE_KING, Constants.EMPTY, 0))); // Kd1
+        assertTrue(evasions.contains(Move.encode(5, 6, Constants.WHITE_KING, Constants.EMPTY, 0))); // Kf1
+
+        // in double check by the knight on f3 and the rook on e8 only the king moves, the rook on h1 can not help
+        b = new Board("4r2k/8/8/8/8/5n2/8/4K2R w K - 0 1");
+        g.generateEvasions(b, Constants.WHITE, evasions);
+        g.generateMoves(b, Constants.WHITE, all);
+        assertEquals(3, evasions.size()); // Kd1, Kf1 and Kf2
+        assertEquals(all.size(), evasions.size());
+        for (int i = 0; i < evasions.size(); i++) {
+            assertEquals(Constants.WHITE_KING, Move.getMovingPiece(evasions.get(i)));
         }
+
+        // without a check there are no evasions
+        MoveList moves = new MoveList();
+        assertThrows(IllegalArgumentException.class, () -> g.generateEvasions(new Board(), Constants.WHITE, moves));
     }
 
     @Test
-    void axisAlignedAttacksIncludingBlocker() {
+    void givesCheck() {
+        // the bishop on e2 blocks the rook on e1, the knight on c4 can check from d6
+        Board b = new Board("4k3/8/8/8/2N5/8/4B3/4R1K1 w - - 0 1");
         LegalGenerator g = new LegalGenerator();
-        Method toTest = null;
-        try {
-            toTest = g.getClass().getDeclaredMethod("getAxisAlignedAttackSquaresIncludingBlocked", long.class, long.class);
-            toTest.setAccessible(true);
-        } catch (NoSuchMethodException e) {
-            e.printStackTrace();
-        }
-        assert toTest != null;
+        g.findCheckSquares(b);
+        assertEquals(LegalGenerator.DIRECT_CHECK,
+                g.givesCheck(Move.encode(27, 44, Constants.WHITE_KNIGHT, Constants.EMPTY, 0))); // Nd6
+        assertEquals(LegalGenerator.DISCOVERED_CHECK,
+                g.givesCheck(Move.encode(13, 20, Constants.WHITE_BISHOP, Constants.EMPTY, 0))); // Bd3
+        assertEquals(LegalGenerator.DOUBLE_CHECK,
+                g.givesCheck(Move.encode(13, 40, Constants.WHITE_BISHOP, Constants.EMPTY, 0))); // Bh5
+        assertEquals(LegalGenerator.NO_CHECK,
+                g.givesCheck(Move.encode(7, 8, Constants.WHITE_KING, Constants.EMPTY, 0))); // Kh1
 
-        long pieces = 0x0000002000000000L; // c4
-        try {
-            assertEquals(0x202020ff20202020L & ~pieces, toTest.invoke(g, pieces, pieces));
-        } catch (IllegalAccessException | InvocationTargetException e) {
-            e.printStackTrace();
-        }
-        long occupied = 0x0000302200000000L; // c4, c3, d3, g4
-        try {
-            assertEquals(0x000020de20202020L & ~pieces, toTest.invoke(g, pieces, occupied));
-        } catch (IllegalAccessException | InvocationTargetException e) {
-            e.printStackTrace();
-        }
-        pieces |= 0x0000000008000000L; // add rook on e5 to test two rooks
-        try {
-            assertEquals(0x080828def7282828L & ~pieces, toTest.invoke(g, pieces, occupied));
-        } catch (IllegalAccessException | InvocationTargetException e) {
-            e.printStackTrace();
-        }
+        // after castling the rook checks from f1
+        b = new Board("5k2/8/8/8/8/8/8/4K2R w K - 0 1");
+        g.findCheckSquares(b);
+        assertEquals(LegalGenerator.DIRECT_CHECK,
+                g.givesCheck(Move.encode(5, 7, Constants.WHITE_KING, Constants.EMPTY, 2)));
+        assertTrue(g.hasLegalMoves(b));
+        assertFalse(g.hasLegalMoves(new Board("7k/6Q1/6K1/8/8/8/8/8 b - - 0 1"))); // mate
     }
 
     @Test
-    void raysToSquare() {
+    void countLegalMoves() {
+        // the counts have to match the generated moves, also with promotions, castling, en passent, pins and checks
+        String[] fens = {
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+                "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+                "4k3/8/8/8/8/8/p1p5/1N2K3 b - - 0 1",
+                "8/8/8/KPp4r/8/8/8/7k w - c6 0 1",
+                "k3r3/8/8/8/1b3N2/8/3Q1PB1/4K3 w - - 0 1"
+        };
         LegalGenerator g = new LegalGenerator();
-        Method toTest = null;
-        try {
-            toTest = g.getClass().getDeclaredMethod("getSliderRaysToSquare", long.class, long.class, long.class, long.class, long.class);
-            toTest.setAccessible(true);
-        } catch (NoSuchMethodException e) {
-            e.printStackTrace();
+        for (String fen : fens) {
+            Board b = new Board(fen);
+            assertEquals(b.getMoves().size(), g.countLegalMoves(b), fen);
         }
-        assert toTest != null;
-
-        long square = 0x0000100000000000L; //d3
-        long bishops = 0x0000000020020000L; //c5 and g6
-        long queens = 0x0000000008004000L; //b7 and e5
-        long rooks = 0x0200400000000000L; //b3 and g1
-        long occupied = 0x020050002c024000L; // also a pawn on f5
-        try {
-            List<Long> actual = (List<Long>)toTest.invoke(g, square, bishops, queens, rooks, occupied);
-            assertArrayEquals(new Long[]{0L, 0x0000600000000000L}, actual.toArray(new Long[actual.size()]));
-        } catch (IllegalAccessException | InvocationTargetException e) {
-            e.printStackTrace();
+    }
+
+    /**
+     * A slow reference: walks from the slider in every direction until the edge of the lines or a blocker
+     */
+    private long lineAttacks(long slider, long occupied, long lines) {
+        long attacks = 0L;
+        int[][] directions = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}, {1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+        int square = Long.numberOfLeadingZeros(slider);
+        for (int[] d : directions) {
+            int x = square % 8 + d[0];
+            int y = square / 8 + d[1];
+            while (x >= 0 && x < 8 && y >= 0 && y < 8) {
+                long target = 1L << (63 - (y * 8 + x));
+                if ((target & lines) == 0) break;
+                attacks |= target;
+                if ((target & occupied) != 0) break;
+                x += d[0];
+                y += d[1];
+            }
         }
+        return attacks;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,101 @@
+package tests;
+
+import Players.MovePicker;
+import Players.TranspositionTable;
+import moveGenerator.MoveList;
+import org.junit.jupiter.api.Test;
+import state.Board;
+import state.Move;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MovePickerTest {
+    // white can take the queen on d5 with the pawn and the knight, and the rook on f5 with the pawn
+    private static final String FEN = "4k3/8/8/3q1r2/4P3/2N5/8/R3K3 w - - 0 1";
+
+    @Test
+    void order() {
+        Board b = new Board(FEN);
+        MoveList moves = b.getMoveList();
+        int pvMove = find(moves, "c3", "b5");
+        int tableMove = find(moves, "a1", "a5");
+        int firstKiller = find(moves, "a1", "a7");
+        int secondKiller = find(moves, "e1", "e2");
+        int goodHistory = find(moves, "c3", "e2");
+        int badHistory = find(moves, "a1", "a3");
+        MovePicker picker = new MovePicker(10);
+        picker.cutoff(secondKiller, 0, 1);
+        picker.cutoff(firstKiller, 0, 1); // the newest killer is the first one
+        picker.cutoff(goodHistory, 3, 4); // a history of 16, at another ply so it is no killer of ply 0
+        picker.cutoff(badHistory, 3, 2); // a history of 4
+        picker.cutoff(find(moves, "e4", "d5"), 3, 10); // captures are not remembered
+        assertTrue(picker.isKiller(firstKiller, 0));
+        assertTrue(picker.isKiller(secondKiller, 0));
+        assertFalse(picker.isKiller(goodHistory, 0));
+        assertFalse(picker.isKiller(find(moves, "e4", "d5"), 3));
+
+        picker.score(moves, 0, TranspositionTable.compress(tableMove), pvMove);
+        int[] expected = {pvMove, tableMove,
+                find(moves, "e4", "d5"), // queen by pawn
+                find(moves, "c3", "d5"), // queen by knight
+                find(moves, "e4", "f5"), // rook by pawn
+                firstKiller, secondKiller, goodHistory, badHistory};
+        for (int i = 0; i < expected.length; i++) {
+            int m = picker.next(moves, 0, i);
+            assertEquals(expected[i], m, "move " + i + " is " + new Move(m));
+            assertEquals(m, moves.get(i));
+        }
+        // the rest are the other quiet moves, without history
+        int size = moves.size();
+        for (int i = expected.length; i < size; i++) {
+            int m = picker.next(moves, 0, i);
+            assertFalse(Move.isCapture(m));
+            for (int e : expected) {
+                assertNotEquals(e, m);
+            }
+        }
+        assertEquals(size, moves.size());
+
+        // a new search forgets the killers
+        picker.newSearch();
+        assertFalse(picker.isKiller(firstKiller, 0));
+        assertFalse(picker.isKiller(secondKiller, 0));
+    }
+
+    @Test
+    void historyStaysBelowKillers() {
+        Board b = new Board(FEN);
+        MoveList moves = b.getMoveList();
+        int killer = find(moves, "a1", "a7");
+        int history = find(moves, "c3", "e2");
+        MovePicker picker = new MovePicker(10);
+        // 30000 cutoffs of 10000 would pass the killers, if the history was not halved
+        for (int i = 0; i < 30000; i++) {
+            picker.cutoff(history, 5, 100);
+        }
+        picker.cutoff(killer, 0, 1);
+        picker.score(moves, 0, 0, 0);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(Move.isCapture(picker.next(moves, 0, i)));
+        }
+        assertEquals(killer, picker.next(moves, 0, 3));
+        assertEquals(history, picker.next(moves, 0, 4));
+    }
+
+    /**
+     * @return the legal move between two squares, like "e2" and "e4"
+     */
+    private static int find(MoveList moves, String from, String to) {
+        for (int i = 0; i < moves.size(); i++) {
+            int m = moves.get(i);
+            if (Move.getFrom(m) == square(from) && Move.getTo(m) == square(to)) {
+                return m;
+            }
+        }
+        throw new AssertionError("No move from " + from + " to " + to);
+    }
+
+    private static int square(String s) {
+        return s.charAt(0) - 'a' + 1 + (s.charAt(1) - '1') * 8;
+    }
+}
@@ -0,0 +1,112 @@
+package tests;
+
+import Players.AlphaBetaPlayer;
+import moveGenerator.MoveList;
+import org.junit.jupiter.api.Test;
+import state.Board;
+import state.Move;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchTest {
+    private static final int MATE = AlphaBetaPlayer.MATE;
+
+    /**
+     * 1. Nf6+ gxf6 2. Bxf7#
+     */
+    @Test
+    void mateInTwo() {
+        Board b = new Board("r2qkb1r/pp2nppp/3p4/2pNN1B1/2BnP3/3P4/PPP2PPP/R2bK2R w KQkq - 1 1");
+        AlphaBetaPlayer player = new AlphaBetaPlayer(b, 1);
+        assertEquals(MATE - 3, player.search(b, 6)); // mated at ply 3
+        assertEquals("d5f6", player.getBestMove().toString());
+        assertEquals("r2qkb1r/pp2nppp/3p4/2pNN1B1/2BnP3/3P4/PPP2PPP/R2bK2R w KQkq - 1 1", b.toString());
+    }
+
+    /**
+     * Black to move mates in 3, the value is for black
+     */
+    @Test
+    void mateInThree() {
+        Board b = new Board("r1b1kb1r/pppp1ppp/5q2/4n3/3KP3/2N3PN/PPP4P/R1BQ1B1R b kq - 0 1");
+        AlphaBetaPlayer player = new AlphaBetaPlayer(b, 1);
+        assertEquals(MATE - 5, player.search(b, 8));
+
+        b = new Board("7k/8/8/4K3/8/8/8/R7 w - - 0 1");
+        player = new AlphaBetaPlayer(b, 1);
+        assertEquals(MATE - 5, player.search(b, 8));
+    }
+
+    /**
+     * The moves of the principal variation of a forced mate are legal and end in the mate
+     */
+    @Test
+    void principalVariation() {
+        Board b = new Board("r1b1kb1r/pppp1ppp/5q2/4n3/3KP3/2N3PN/PPP4P/R1BQ1B1R b kq - 0 1");
+        AlphaBetaPlayer player = new AlphaBetaPlayer(b, 1);
+        player.search(b, 8);
+        int[] pv = player.getPrincipalVariation();
+        assertEquals(5, pv.length);
+        assertEquals(player.getBestMove().toString(), new Move(pv[0]).toString());
+        for (int m : pv) {
+            assertTrue(b.getMoveList().contains(m), new Move(m) + " is not legal in " + b);
+            b.makeMove(m);
+        }
+        assertTrue(b.getMoveList().isEmpty());
+        assertTrue(b.colorToMoveInCheck());
+    }
+
+    /**
+     * Qxd5 wins a rook, but exd5 wins the queen back. Only the quiescence search at the horizon of a one ply search
+     * sees it, and takes the pawn on c2 that is not protected instead.
+     */
+    @Test
+    void quiescence() {
+        Board b = new Board("4k3/8/4p3/3r4/8/8/2p5/3QK3 w - - 0 1");
+        AlphaBetaPlayer player = new AlphaBetaPlayer(b, 1);
+        assertEquals(900 - 500 - 100, player.search(b, 1));
+        assertEquals("d1c2", player.getBestMove().toString());
+    }
+
+    /**
+     * Bg3 takes every square of the black king away without check. A stalemate is a draw, which is worse than the two
+     * bishops up it gives away.
+     */
+    @Test
+    void stalemate() {
+        Board b = new Board("k7/8/1K6/8/8/8/8/2B1B3 w - - 0 1");
+        AlphaBetaPlayer player = new AlphaBetaPlayer(b, 1);
+        assertEquals(600, player.search(b, 4));
+        assertNotEquals("e1g3", player.getBestMove().toString());
+    }
+
+    /**
+     * Both kings protect their own pawn and attack the other pawn: the color to move has to give up its pawn. A null
+     * move would pass instead, so it is not tried when only the kings and pawns are left.
+     */
+    @Test
+    void zugzwang() {
+        Board b = new Board("8/8/2Kp4/3Pk3/8/8/8/8 w - - 0 1");
+        AlphaBetaPlayer player = new AlphaBetaPlayer(b, 1);
+        assertTrue(player.search(b, 8) <= -100);
+        assertEquals(0, player.getNullMoves());
+
+        b = new Board("8/8/2Kp4/3Pk3/8/8/8/8 b - - 0 1");
+        player = new AlphaBetaPlayer(b, 1);
+        assertTrue(player.search(b, 8) <= -100);
+        assertEquals(0, player.getNullMoves());
+    }
+
+    /**
+     * With pieces on the board null moves are tried, and the search still finds the material win
+     */
+    @Test
+    void nullMove() {
+        Board b = new Board("4k3/8/4p3/3r4/8/8/2p5/3QK3 w - - 0 1");
+        AlphaBetaPlayer player = new AlphaBetaPlayer(b, 1);
+        assertTrue(player.search(b, 6) >= 300);
+        assertTrue(player.getNullMoves() > 0);
+        MoveList moves = b.getMoveList();
+        assertTrue(moves.contains(player.getBestMove().getEncoded()));
+    }
+}
@@ -0,0 +1,125 @@
+package tests;
+
+import Players.AlphaBetaPlayer;
+import Players.TranspositionTable;
+import org.junit.jupiter.api.Test;
+import state.Constants;
+import state.Move;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TranspositionTableTest {
+    private static final int MATE = AlphaBetaPlayer.MATE;
+    // two keys that go to the same entry of a 1 MB table, they only differ in the high bits
+    private static final long KEY = 0x1234L;
+    private static final long OTHER_KEY = KEY | 0xABCDL << 40;
+
+    @Test
+    void storeAndProbe() {
+        TranspositionTable table = new TranspositionTable(1);
+        int move = Move.encode(13, 29, Constants.WHITE_PAWN, Constants.EMPTY, 1);
+        int[] scores = {0, 1, -1, 1234, -1234, 30000, -30000};
+        for (int score : scores) {
+            table.store(KEY, TranspositionTable.compress(move), score, 7, TranspositionTable.LOWER_BOUND, 3);
+            long data = table.probe(KEY);
+            assertNotEquals(TranspositionTable.NONE, data);
+            assertEquals(score, TranspositionTable.getScore(data, 3));
+            assertEquals(score, TranspositionTable.getScore(data, 10)); // not a mate, so the ply does not matter
+            assertEquals(7, TranspositionTable.getDepth(data));
+            assertEquals(TranspositionTable.LOWER_BOUND, TranspositionTable.getBound(data));
+            assertTrue(TranspositionTable.matches(move, TranspositionTable.getMove(data)));
+        }
+        table.store(KEY, 0, 0, 0, TranspositionTable.UPPER_BOUND, 0);
+        long data = table.probe(KEY);
+        assertNotEquals(TranspositionTable.NONE, data); // 0 as move, score and depth still hits
+        assertEquals(0, TranspositionTable.getMove(data));
+        assertEquals(TranspositionTable.UPPER_BOUND, TranspositionTable.getBound(data));
+        assertEquals(TranspositionTable.NONE, table.probe(KEY + 1));
+    }
+
+    @Test
+    void mateScores() {
+        TranspositionTable table = new TranspositionTable(1);
+        for (int storePly = 0; storePly < 10; storePly += 3) {
+            for (int probePly = 0; probePly < 10; probePly += 3) {
+                // the color to move at the root mates 5 plies after the root, seen from a position at storePly that
+                // is reached again at probePly, where the mate is as far from the position
+                table.store(KEY, 0, MATE - 5, 4, TranspositionTable.EXACT, storePly);
+                long data = table.probe(KEY);
+                assertEquals(MATE - 5 + storePly - probePly, TranspositionTable.getScore(data, probePly));
+                // and gets mated 6 plies after the root
+                table.store(KEY, 0, -(MATE - 6), 4, TranspositionTable.EXACT, storePly);
+                data = table.probe(KEY);
+                assertEquals(-(MATE - 6 + storePly - probePly), TranspositionTable.getScore(data, probePly));
+            }
+        }
+        // being mated at the root itself, the lowest score that is stored
+        table.store(KEY, 0, -MATE, 0, TranspositionTable.EXACT, 0);
+        assertEquals(-MATE, TranspositionTable.getScore(table.probe(KEY), 0));
+    }
+
+    @Test
+    void collision() {
+        TranspositionTable table = new TranspositionTable(1);
+        table.store(KEY, 0, 100, 5, TranspositionTable.EXACT, 0);
+        assertEquals(TranspositionTable.NONE, table.probe(OTHER_KEY));
+        assertEquals(100, TranspositionTable.getScore(table.probe(KEY), 0));
+    }
+
+    @Test
+    void replacement() {
+        TranspositionTable table = new TranspositionTable(1);
+        table.store(KEY, 0, 100, 5, TranspositionTable.EXACT, 0);
+        // a shallower entry of another position in the same search does not replace it
+        table.store(OTHER_KEY, 0, 200, 4, TranspositionTable.EXACT, 0);
+        assertEquals(TranspositionTable.NONE, table.probe(OTHER_KEY));
+        assertEquals(5, TranspositionTable.getDepth(table.probe(KEY)));
+        // the same position is always replaced, also by a shallower search
+        table.store(KEY, 0, 150, 2, TranspositionTable.EXACT, 0);
+        assertEquals(2, TranspositionTable.getDepth(table.probe(KEY)));
+        // another position that was searched as deep replaces it
+        table.store(OTHER_KEY, 0, 200, 2, TranspositionTable.EXACT, 0);
+        assertEquals(TranspositionTable.NONE, table.probe(KEY));
+        assertEquals(200, TranspositionTable.getScore(table.probe(OTHER_KEY), 0));
+        // an entry of an older search is replaced by any depth
+        table.store(KEY, 0, 300, 9, TranspositionTable.EXACT, 0);
+        long data = table.probe(KEY);
+        int age = TranspositionTable.getAge(data);
+        table.newSearch();
+        table.store(OTHER_KEY, 0, 400, 1, TranspositionTable.EXACT, 0);
+        assertEquals(TranspositionTable.NONE, table.probe(KEY));
+        data = table.probe(OTHER_KEY);
+        assertEquals(400, TranspositionTable.getScore(data, 0));
+        assertEquals((age + 1) & 0xff, TranspositionTable.getAge(data));
+    }
+
+    @Test
+    void compress() {
+        assertEquals(0, TranspositionTable.compress(0));
+        assertFalse(TranspositionTable.matches(0, 0));
+        int[] flags = {0, 1, 2, 3, 4, 5, 8, 9, 10, 11, 12, 13, 14, 15};
+        for (int flag : flags) {
+            for (int from = 1; from <= 64; from += 7) {
+                for (int to = 2; to <= 64; to += 9) {
+                    int move = Move.encode(from, to, Constants.BLACK_PAWN, Constants.WHITE_ROOK, flag);
+                    int compressed = TranspositionTable.compress(move);
+                    assertEquals(compressed & 0xffff, compressed);
+                    assertEquals(from, (compressed >>> 10) + 1);
+                    assertEquals(to, (compressed >>> 4 & 0x3f) + 1);
+                    assertEquals(flag, compressed & 0xf);
+                    assertTrue(TranspositionTable.matches(move, compressed));
+                }
+            }
+        }
+        // the promotions from and to the same squares are told apart
+        int queen = Move.encode(52, 60, Constants.WHITE_PAWN, Constants.EMPTY, 11);
+        int knight = Move.encode(52, 60, Constants.WHITE_PAWN, Constants.EMPTY, 8);
+        int queenCapture = Move.encode(52, 59, Constants.WHITE_PAWN, Constants.BLACK_ROOK, 15);
+        int rookCapture = Move.encode(52, 59, Constants.WHITE_PAWN, Constants.BLACK_ROOK, 14);
+        assertFalse(TranspositionTable.matches(knight, TranspositionTable.compress(queen)));
+        assertFalse(TranspositionTable.matches(rookCapture, TranspositionTable.compress(queenCapture)));
+        TranspositionTable table = new TranspositionTable(1);
+        table.store(KEY, TranspositionTable.compress(queenCapture), 0, 1, TranspositionTable.EXACT, 0);
+        assertTrue(TranspositionTable.matches(queenCapture, TranspositionTable.getMove(table.probe(KEY))));
+    }
+}